@@ -22,6 +22,7 @@ configure<ApplicationExtension> {
         targetSdk = common.versions.targetSdk.get().toInt()
         versionCode = 1
         versionName = now
+        buildConfigField("String", "LITERT_VERSION", "\"${libs.versions.litert.get()}\"")
 
         ndk {
             abiFilters.add("arm64-v8a")
@@ -42,6 +43,7 @@ configure<ApplicationExtension> {
 
     buildFeatures {
         viewBinding = true
+        buildConfig = true
         aidl = true
     }
 }
@@ -59,13 +61,12 @@ tasks.withType<PackageAndroidArtifact>().configureEach {
 }
 
 dependencies {
+    implementation(project(":yolo-core"))
+
     implementation(libs.appcompat)
     implementation(libs.material)
 
     implementation(libs.litert)
-    implementation(libs.litert.support.api) {
-        exclude(group = "com.google.ai.edge.litert", module = "litert-api")
-    }
 
     implementation(libs.mmkv)
     implementation(libs.gson)
@@ -0,0 +1,74 @@
+package top.bogey.yolo.bean;
+
+import com.google.ai.edge.litert.Accelerator;
+import com.google.ai.edge.litert.CompiledModel;
+import com.google.ai.edge.litert.LiteRtException;
+import com.google.ai.edge.litert.TensorBuffer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import top.bogey.yolo.core.TensorType;
+
+// 在各加速方式上编译模型并用合成输入计时，取耗时中位数
+public class AcceleratorBenchmark {
+    private static final int WARM_UP_RUNS = 2;
+    private static final int TIMED_RUNS = 5;
+
+    // 返回单次推理毫秒数，无法使用时返回 -1，非 FLOAT32 的输入输出按原始字节读写
+    public static float measure(String modelPath, Accelerator accelerator, TensorType inputType, TensorType outputType) {
+        try (CompiledModel model = CompiledModel.create(modelPath, new CompiledModel.Options(accelerator))) {
+            List<TensorBuffer> inputs = model.createInputBuffers();
+            List<TensorBuffer> outputs = model.createOutputBuffers();
+            try {
+                Random random = new Random(0);
+                float[] input = null;
+                byte[] rawInput = null;
+                if (inputType == TensorType.FLOAT32) {
+                    input = new float[inputs.get(0).readFloat().length];
+                    for (int i = 0; i < input.length; i++) {
+                        input[i] = random.nextFloat();
+                    }
+                } else {
+                    rawInput = inputs.get(0).readInt8();
+                    random.nextBytes(rawInput);
+                    // 半精度取 0~1 内的值，避免随机字节产生 NaN
+                    if (inputType == TensorType.FLOAT16) {
+                        for (int i = 0; i < rawInput.length; i += 2) {
+                            short half = TensorType.toHalf(random.nextFloat());
+                            rawInput[i] = (byte) half;
+                            rawInput[i + 1] = (byte) (half >> 8);
+                        }
+                    }
+                }
+
+                for (int i = 0; i < WARM_UP_RUNS; i++) {
+                    run(model, inputs, outputs, input, rawInput, outputType);
+                }
+
+                long[] times = new long[TIMED_RUNS];
+                for (int i = 0; i < TIMED_RUNS; i++) {
+                    long start = System.nanoTime();
+                    run(model, inputs, outputs, input, rawInput, outputType);
+                    times[i] = System.nanoTime() - start;
+                }
+                Arrays.sort(times);
+                return times[TIMED_RUNS / 2] / 1_000_000f;
+            } finally {
+                inputs.forEach(TensorBuffer::close);
+                outputs.forEach(TensorBuffer::close);
+            }
+        } catch (LiteRtException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    private static void run(CompiledModel model, List<TensorBuffer> inputs, List<TensorBuffer> outputs, float[] input, byte[] rawInput, TensorType outputType) throws LiteRtException {
+        if (input != null) inputs.get(0).writeFloat(input);
+        else inputs.get(0).writeInt8(rawInput);
+        model.run(inputs, outputs);
+        if (outputType == TensorType.FLOAT32) outputs.get(0).readFloat();
+        else outputs.get(0).readInt8();
+    }
+}
@@ -0,0 +1,183 @@
+package top.bogey.yolo.bean;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.OpenableColumns;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// 单次读取压缩包完成导入：模型边解压边计算哈希写入临时目录，配置与模型可为任意顺序，全部成功后整体改名到以哈希命名的目录
+public class ModelImporter {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String TEMP_PREFIX = ".import-";
+
+    public interface Listener {
+        // total 未知时为 -1
+        void onProgress(long read, long total);
+    }
+
+    private final Uri uri;
+    private final Listener listener;
+    private volatile boolean cancelled;
+    private boolean committed;
+
+    public ModelImporter(Uri uri, Listener listener) {
+        this.uri = uri;
+        this.listener = listener;
+    }
+
+    // 已提交保存后取消无效
+    public synchronized void cancel() {
+        if (!committed) cancelled = true;
+    }
+
+    // 保存模型信息前调用，已取消时返回 false
+    public synchronized boolean commit() {
+        if (cancelled) return false;
+        committed = true;
+        return true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    // 成功时模型已位于 modelsDir/<hash>/ 下，相同内容的模型只保留一份，失败或取消时返回 null 且不留下临时文件
+    public ModelInfo run(Context context, File modelsDir) {
+        if (!modelsDir.exists() && !modelsDir.mkdirs()) return null;
+        File tempDir = new File(modelsDir, TEMP_PREFIX + UUID.randomUUID());
+        if (!tempDir.mkdirs()) return null;
+        File modelFile = new File(tempDir, YoloManager.MODEL);
+
+        try {
+            ModelInfo modelInfo = null;
+            String hash = null;
+
+            long total = querySize(context);
+            InputStream inputStream = context.getContentResolver().openInputStream(uri);
+            if (inputStream == null) return null;
+            try (ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(new ProgressInputStream(inputStream, total), BUFFER_SIZE))) {
+                ZipEntry zipEntry;
+                while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+                    if (zipEntry.isDirectory()) continue;
+                    String name = zipEntry.getName();
+                    if (YoloManager.METADATA.equals(name)) {
+                        modelInfo = ModelInfo.parseModeInfo(readText(zipInputStream));
+                    } else if (hash == null && name.toLowerCase().contains(YoloManager.MODEL_SUFFIX)) {
+                        hash = extract(zipInputStream, modelFile);
+                    }
+                }
+            }
+            if (modelInfo == null || hash == null) return null;
+
+            modelInfo.setHash(hash);
+            File modelDir = new File(modelsDir, hash);
+            if (!new File(modelDir, YoloManager.MODEL).exists()) {
+                try {
+                    Files.move(tempDir.toPath(), modelDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                } catch (IOException e) {
+                    // 同时导入相同模型时可能已被另一次导入放好
+                    if (!new File(modelDir, YoloManager.MODEL).exists()) throw e;
+                }
+            }
+            return modelInfo;
+        } catch (IOException | NoSuchAlgorithmException | RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        } finally {
+            delete(tempDir);
+        }
+    }
+
+    private long querySize(Context context) {
+        try (Cursor cursor = context.getContentResolver().query(uri, new String[]{OpenableColumns.SIZE}, null, null, null)) {
+            if (cursor != null && cursor.moveToFirst() && !cursor.isNull(0)) return cursor.getLong(0);
+        } catch (RuntimeException ignored) {
+        }
+        return -1;
+    }
+
+    // 整体读取后再按 UTF-8 解码，避免多字节字符被缓冲区截断
+    private static String readText(InputStream inputStream) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int len;
+        while ((len = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, len);
+        }
+        return outputStream.toString(StandardCharsets.UTF_8.name());
+    }
+
+    private static String extract(InputStream inputStream, File file) throws IOException, NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        try (FileOutputStream outputStream = new FileOutputStream(file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, len);
+                outputStream.write(buffer, 0, len);
+            }
+            outputStream.getFD().sync();
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (byte b : digest.digest()) {
+            builder.append(String.format("%02x", b));
+        }
+        return builder.toString();
+    }
+
+    static void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    // 按原始压缩包读取的字节数汇报进度，取消后下一次读取即中断
+    private class ProgressInputStream extends FilterInputStream {
+        private final long total;
+        private long read;
+
+        private ProgressInputStream(InputStream in, long total) {
+            super(in);
+            this.total = total;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) == -1 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (cancelled) throw new InterruptedIOException("import cancelled");
+            int count = super.read(b, off, len);
+            if (count > 0) {
+                read += count;
+                if (listener != null) listener.onProgress(read, total);
+            }
+            return count;
+        }
+    }
+}
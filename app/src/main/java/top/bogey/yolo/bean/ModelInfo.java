@@ -7,21 +7,62 @@ import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
+import top.bogey.yolo.core.NonMaxSuppression;
+import top.bogey.yolo.core.TensorType;
+
 public class ModelInfo {
-    private final String id = UUID.randomUUID().toString();
-    private final long time = System.currentTimeMillis();
+    static final Type LABELS_TYPE = new TypeToken<List<String>>() {
+    }.getType();
+
+    private final String id;
+    private final long time;
     private String name;
     private YoloVersion version;
     private String description;
     private String author;
-    private List<String> labels;
+    // 标签单独存储，首次使用时才读取
+    private transient volatile List<String> labels;
     private int imageSize;
+    private float iouThreshold = NonMaxSuppression.IOU_THRESHOLD;
+    private boolean classAgnostic;
+    private int maxDetections;
+    private String hash;
+    private float gpuLatency = -1;
+    private float cpuLatency = -1;
+    private String benchmarkFingerprint;
+    private TensorType inputType = TensorType.FLOAT32;
 
     private Accelerator accelerator = Accelerator.NONE;
 
+    public ModelInfo() {
+        id = UUID.randomUUID().toString();
+        time = System.currentTimeMillis();
+    }
+
+    ModelInfo(ModelInfo other) {
+        id = other.id;
+        time = other.time;
+        name = other.name;
+        version = other.version;
+        description = other.description;
+        author = other.author;
+        labels = other.labels;
+        imageSize = other.imageSize;
+        iouThreshold = other.iouThreshold;
+        classAgnostic = other.classAgnostic;
+        maxDetections = other.maxDetections;
+        hash = other.hash;
+        gpuLatency = other.gpuLatency;
+        cpuLatency = other.cpuLatency;
+        benchmarkFingerprint = other.benchmarkFingerprint;
+        inputType = other.inputType;
+        accelerator = other.accelerator;
+    }
+
     public static ModelInfo parseModeInfo(String json) {
         Gson gson = new Gson();
         JsonObject jsonObject = gson.fromJson(json, JsonObject.class);
@@ -35,10 +76,12 @@ public class ModelInfo {
         String version = jsonObject.has("version") ? jsonObject.get("version").getAsString() : "";
         modelInfo.version = parseVersion(version);
 
-        Type labelsType = new TypeToken<List<String>>() {
-        }.getType();
-        modelInfo.labels = jsonObject.has("labels") ? gson.fromJson(jsonObject.get("labels"), labelsType) : new ArrayList<>();
+        List<String> labels = jsonObject.has("labels") ? gson.fromJson(jsonObject.get("labels"), LABELS_TYPE) : new ArrayList<>();
+        modelInfo.labels = Collections.unmodifiableList(labels);
         modelInfo.imageSize = jsonObject.has("imageSize") ? jsonObject.get("imageSize").getAsInt() : 640;
+        modelInfo.iouThreshold = jsonObject.has("iouThreshold") ? jsonObject.get("iouThreshold").getAsFloat() : NonMaxSuppression.IOU_THRESHOLD;
+        modelInfo.classAgnostic = jsonObject.has("classAgnostic") && jsonObject.get("classAgnostic").getAsBoolean();
+        modelInfo.maxDetections = jsonObject.has("maxDetections") ? jsonObject.get("maxDetections").getAsInt() : 0;
 
         if (modelInfo.isValid()) return modelInfo;
         return null;
@@ -56,6 +99,7 @@ public class ModelInfo {
         if (version == YoloVersion.NULL) return false;
         if (labels.isEmpty()) return false;
         if (imageSize % 32 != 0) return false;
+        if (iouThreshold <= 0 || iouThreshold > 1) return false;
         return true;
     }
 
@@ -84,25 +128,71 @@ public class ModelInfo {
     }
 
     public List<String> getLabels() {
-        return labels;
+        List<String> list = labels;
+        if (list == null) {
+            list = YoloManager.getInstance().loadLabels(id);
+            labels = list;
+        }
+        return list;
+    }
+
+    boolean isLabelsLoaded() {
+        return labels != null;
     }
 
     public int getImageSize() {
         return imageSize;
     }
 
+    public NonMaxSuppression.Options getNmsOptions() {
+        return new NonMaxSuppression.Options(iouThreshold, classAgnostic, maxDetections, true);
+    }
+
+    // 模型文件的 SHA-256
+    public String getHash() {
+        return hash;
+    }
+
+    void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public float getGpuLatency() {
+        return gpuLatency;
+    }
+
+    public float getCpuLatency() {
+        return cpuLatency;
+    }
+
+    // 记录测速结果并选择耗时最短的加速方式
+    void setBenchmark(float gpuLatency, float cpuLatency, String fingerprint) {
+        this.gpuLatency = gpuLatency;
+        this.cpuLatency = cpuLatency;
+        benchmarkFingerprint = fingerprint;
+        if (gpuLatency >= 0 && (cpuLatency < 0 || gpuLatency <= cpuLatency)) accelerator = Accelerator.GPU;
+        else accelerator = Accelerator.CPU;
+    }
+
+    // 设备系统或 LiteRT 版本变化后测速结果失效
+    public boolean isBenchmarkValid(String fingerprint) {
+        return fingerprint.equals(benchmarkFingerprint);
+    }
+
+    // 模型文件中记录的输入张量类型
+    public TensorType getInputType() {
+        return inputType;
+    }
+
+    void setInputType(TensorType inputType) {
+        this.inputType = inputType;
+    }
+
     public Accelerator getAccelerator() {
         return accelerator;
     }
 
-    public void setAccelerator(Accelerator accelerator) {
+    void setAccelerator(Accelerator accelerator) {
         this.accelerator = accelerator;
     }
-
-    public int getBoxCount() {
-        int p3 = (imageSize / 8) * (imageSize / 8);
-        int p4 = (imageSize / 16) * (imageSize / 16);
-        int p5 = (imageSize / 32) * (imageSize / 32);
-        return p3 + p4 + p5;
-    }
 }
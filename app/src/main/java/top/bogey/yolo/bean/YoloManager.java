@@ -2,38 +2,45 @@ package top.bogey.yolo.bean;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.Build;
 
 import com.google.ai.edge.litert.Accelerator;
-import com.google.ai.edge.litert.CompiledModel;
-import com.google.ai.edge.litert.LiteRtException;
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import com.tencent.mmkv.MMKV;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
+import java.util.concurrent.ConcurrentHashMap;
+
+import top.bogey.yolo.BuildConfig;
+import top.bogey.yolo.core.TensorType;
+import top.bogey.yolo.core.TfliteReader;
 
 public class YoloManager {
-    private static final String MODEL = "model.tflite";
-    private static final String MODEL_SUFFIX = ".tflite";
-    private static final String METADATA = "metadata.json";
+    static final String MODEL = "model.tflite";
+    static final String MODEL_SUFFIX = ".tflite";
+    static final String METADATA = "metadata.json";
+    private static final String LABELS = "labels";
     private static final String MODEL_PATH = "models";
 
-    private static YoloManager instance;
+    private static class Holder {
+        private static final YoloManager INSTANCE = new YoloManager();
+    }
 
     public static YoloManager getInstance() {
-        if (instance == null) instance = new YoloManager();
-        return instance;
+        return Holder.INSTANCE;
     }
 
-    private final Map<String, ModelInfo> models = new HashMap<>();
+    // 注册表中的对象只在保存时整体替换，识别时按名称直接查找
+    private final Map<String, ModelInfo> models = new ConcurrentHashMap<>();
+    private final Map<String, String> nameIndex = new ConcurrentHashMap<>();
 
     private final MMKV mmkv = MMKV.defaultMMKV();
+    private final MMKV labelsMmkv = MMKV.mmkvWithID(LABELS);
     private final Gson gson = new Gson();
 
     private YoloManager() {
@@ -42,98 +49,127 @@ public class YoloManager {
             for (String key : keys) {
                 String json = mmkv.decodeString(key);
                 ModelInfo modelInfo = gson.fromJson(json, ModelInfo.class);
-                models.put(modelInfo.getId(), modelInfo);
+                if (modelInfo == null) continue;
+
+                // 旧版本把标签存在配置中，迁移到单独的存储
+                if (!labelsMmkv.containsKey(key)) {
+                    JsonObject jsonObject = gson.fromJson(json, JsonObject.class);
+                    List<String> labels = jsonObject.has("labels") ? gson.fromJson(jsonObject.get("labels"), ModelInfo.LABELS_TYPE) : new ArrayList<>();
+                    labelsMmkv.encode(key, gson.toJson(labels));
+                    mmkv.encode(key, gson.toJson(modelInfo));
+                }
+                register(modelInfo);
             }
         }
     }
 
+    private void register(ModelInfo modelInfo) {
+        models.put(modelInfo.getId(), modelInfo);
+        // 重名时使用最新导入的模型
+        nameIndex.merge(modelInfo.getName(), modelInfo.getId(), (oldId, newId) -> {
+            ModelInfo old = models.get(oldId);
+            return old == null || old.getId().equals(newId) || old.getTime() <= modelInfo.getTime() ? newId : oldId;
+        });
+    }
+
+    List<String> loadLabels(String id) {
+        String json = labelsMmkv.decodeString(id);
+        List<String> labels = json == null ? null : gson.fromJson(json, ModelInfo.LABELS_TYPE);
+        return Collections.unmodifiableList(labels == null ? new ArrayList<>() : labels);
+    }
+
     public boolean importModel(Context context, Uri uri) {
-        // 读取模型配置信息
-        ModelInfo modelInfo = null;
-        try (ZipInputStream zipInputStream = new ZipInputStream(context.getContentResolver().openInputStream(uri))) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                String name = zipEntry.getName();
-                if (METADATA.equals(name)) {
-                    StringBuilder builder = new StringBuilder();
-                    byte[] buffer = new byte[1024];
-                    int len;
-                    while ((len = zipInputStream.read(buffer)) != -1) {
-                        builder.append(new String(buffer, 0, len));
-                    }
-                    modelInfo = ModelInfo.parseModeInfo(builder.toString());
-                }
-            }
-        } catch (Exception ignored) {
-        }
+        return importModel(context, new ModelImporter(uri, null));
+    }
+
+    public boolean importModel(Context context, ModelImporter importer) {
+        ModelInfo modelInfo = importer.run(context, new File(context.getFilesDir(), MODEL_PATH));
         if (modelInfo == null) return false;
 
-        String modelDirPath = context.getFilesDir() + File.separator + MODEL_PATH + File.separator + modelInfo.getId();
-        File modelDir = new File(modelDirPath);
-        if (!modelDir.exists()) if (!modelDir.mkdirs()) return false;
-
-        try (ZipInputStream zipInputStream = new ZipInputStream(context.getContentResolver().openInputStream(uri))) {
-            ZipEntry zipEntry;
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                String name = zipEntry.getName();
-                if (name.toLowerCase().contains(MODEL_SUFFIX)) {
-                    File modelFile = new File(modelDirPath, MODEL);
-
-                    try (FileOutputStream outputStream = new FileOutputStream(modelFile)) {
-                        byte[] buffer = new byte[1024];
-                        int len;
-                        while ((len = zipInputStream.read(buffer)) != -1) {
-                            outputStream.write(buffer, 0, len);
-                        }
-                    }
-                }
-            }
-        } catch (Exception ignored) {
+        // 解压后的测速耗时较长，期间取消时不保存，并删除没有其它模型使用的模型文件
+        ModelInfo info = importer.isCancelled() ? null : measureModel(context, modelInfo);
+        if (info == null || !importer.commit()) {
+            deleteModelFile(context, modelInfo);
+            return false;
         }
+        saveModelInfo(info);
+        return true;
+    }
 
-        // 测试模型可加速类型
-        String modelPath = getModelPath(context, modelInfo.getId());
-        try {
-            CompiledModel model = CompiledModel.create(modelPath, new CompiledModel.Options(Accelerator.GPU));
-            modelInfo.setAccelerator(Accelerator.GPU);
-            model.close();
-        } catch (LiteRtException ignored) {
-            modelInfo.setAccelerator(Accelerator.CPU);
+    // 识别输入类型并测试各加速方式的耗时，需在后台线程调用，返回更新后的模型信息，测速期间模型被删除时不保存并返回 null
+    public ModelInfo benchmarkModel(Context context, ModelInfo modelInfo) {
+        ModelInfo info = measureModel(context, modelInfo);
+        synchronized (this) {
+            if (!models.containsKey(info.getId())) return null;
+            saveModelInfo(info);
         }
-        saveModelInfo(modelInfo);
-        return true;
+        return info;
     }
 
-    public void saveModelInfo(ModelInfo modelInfo) {
-        String json = gson.toJson(modelInfo);
-        mmkv.encode(modelInfo.getId(), json);
-        models.put(modelInfo.getId(), modelInfo);
+    private ModelInfo measureModel(Context context, ModelInfo modelInfo) {
+        String modelPath = getModelPath(context, modelInfo);
+        TfliteReader.Model tflite = TfliteReader.read(modelPath);
+        TensorType inputType = tflite == null ? null : TensorType.of(tflite.inputs().get(0).type());
+        TensorType outputType = tflite == null ? null : TensorType.of(tflite.outputs().get(0).type());
+        inputType = inputType == null ? TensorType.FLOAT32 : inputType;
+        outputType = outputType == null ? TensorType.FLOAT32 : outputType;
+
+        float gpuLatency = AcceleratorBenchmark.measure(modelPath, Accelerator.GPU, inputType, outputType);
+        float cpuLatency = AcceleratorBenchmark.measure(modelPath, Accelerator.CPU, inputType, outputType);
+        ModelInfo info = new ModelInfo(modelInfo);
+        info.setInputType(inputType);
+        info.setBenchmark(gpuLatency, cpuLatency, getBenchmarkFingerprint());
+        return info;
+    }
+
+    public static String getBenchmarkFingerprint() {
+        return Build.FINGERPRINT + "/" + BuildConfig.LITERT_VERSION;
+    }
+
+    public synchronized void saveModelInfo(ModelInfo modelInfo) {
+        ModelInfo snapshot = new ModelInfo(modelInfo);
+        if (snapshot.isLabelsLoaded() && !labelsMmkv.containsKey(snapshot.getId())) labelsMmkv.encode(snapshot.getId(), gson.toJson(snapshot.getLabels()));
+        mmkv.encode(snapshot.getId(), gson.toJson(snapshot));
+        register(snapshot);
     }
 
-    public void removeModel(Context context, String id) {
-        ModelInfo modelInfo = models.get(id);
+    // 模型文件按内容共享，最后一个引用它的模型被删除时才删除文件
+    public synchronized void removeModel(Context context, String id) {
+        ModelInfo modelInfo = models.remove(id);
         if (modelInfo == null) return;
-        models.remove(id);
+        nameIndex.remove(modelInfo.getName(), id);
         mmkv.removeValueForKey(id);
-        String path = getModelPath(context, modelInfo.getId());
-        File file = new File(path);
-        if (file.exists()) {
-            file.delete();
+        labelsMmkv.removeValueForKey(id);
+        // 重名的其它模型重新进入索引
+        for (ModelInfo value : models.values()) {
+            if (value.getName().equals(modelInfo.getName())) register(value);
         }
+        deleteModelFile(context, modelInfo);
     }
 
-    public ModelInfo findModel(String name) {
-        for (ModelInfo value : models.values()) {
-            if (value.getName().equals(name)) return value;
+    private void deleteModelFile(Context context, ModelInfo modelInfo) {
+        String hash = modelInfo.getHash();
+        if (hash != null) {
+            for (ModelInfo value : models.values()) {
+                if (hash.equals(value.getHash())) return;
+            }
         }
-        return null;
+        ModelImporter.delete(new File(getModelPath(context, modelInfo)).getParentFile());
+    }
+
+    public ModelInfo findModel(String name) {
+        if (name == null) return null;
+        String id = nameIndex.get(name);
+        return id == null ? null : models.get(id);
     }
 
     public List<ModelInfo> getModels() {
         return new ArrayList<>(models.values());
     }
 
-    public String getModelPath(Context context, String path) {
-        return context.getFilesDir() + File.separator + MODEL_PATH + File.separator + path + File.separator + MODEL;
+    // 旧版本导入的模型没有哈希，仍按编号存放
+    public String getModelPath(Context context, ModelInfo modelInfo) {
+        String dir = modelInfo.getHash() == null ? modelInfo.getId() : modelInfo.getHash();
+        return context.getFilesDir() + File.separator + MODEL_PATH + File.separator + dir + File.separator + MODEL;
     }
 }
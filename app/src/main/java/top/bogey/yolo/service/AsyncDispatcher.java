@@ -0,0 +1,141 @@
+package top.bogey.yolo.service;
+
+import android.os.RemoteException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import top.bogey.yolo.IYoloAsyncCallback;
+import top.bogey.yolo.bean.ModelInfo;
+import top.bogey.yolo.core.PixelSource;
+
+// 异步请求分发，合并模式下同一调用方同一模型只保留最新一帧，被替代的帧直接丢弃
+public class AsyncDispatcher {
+    private final InferenceScheduler scheduler;
+    private final Map<SlotKey, AtomicReference<Request>> latest = new ConcurrentHashMap<>();
+    private final Map<String, Request> requests = new ConcurrentHashMap<>();
+
+    public AsyncDispatcher(InferenceScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void submit(int clientId, long requestId, ModelInfo modelInfo, PixelSource source, float similarity, boolean coalesce, IYoloAsyncCallback callback) {
+        Request request = new Request(clientId, requestId, source, similarity, callback);
+        requests.put(request.key(), request);
+
+        if (!coalesce) {
+            CompletableFuture<Void> future = scheduler.trySubmit(modelInfo, model -> {
+                if (request.start()) request.deliver(model.toResults(model.detect(source, similarity)));
+                return null;
+            });
+            // 已满时直接丢弃，不阻塞 oneway 调用
+            if (future == null) {
+                request.drop();
+                return;
+            }
+            future.whenComplete((result, throwable) -> request.deliver(new ArrayList<>()));
+            return;
+        }
+
+        SlotKey slotKey = new SlotKey(clientId, modelInfo.getId());
+        AtomicReference<Request> slot = latest.computeIfAbsent(slotKey, key -> new AtomicReference<>());
+        Request old = slot.getAndSet(request);
+        if (old != null) {
+            old.drop();
+            return;
+        }
+
+        // 队列中只保留一个任务，执行时取槽位中最新的帧，取空后移除槽位，之后的提交会新建槽位
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Void> future = scheduler.trySubmit(modelInfo, model -> {
+            ran.set(true);
+            Request current = slot.getAndSet(null);
+            latest.remove(slotKey, slot);
+            if (current == null) return null;
+            try {
+                if (current.start()) current.deliver(model.toResults(model.detect(current.source, current.similarity)));
+            } finally {
+                current.deliver(new ArrayList<>());
+            }
+            return null;
+        });
+        if (future == null) {
+            Request current = slot.getAndSet(null);
+            latest.remove(slotKey, slot);
+            if (current != null) current.drop();
+            return;
+        }
+        future.whenComplete((result, throwable) -> {
+            if (ran.get()) return;
+            Request current = slot.getAndSet(null);
+            latest.remove(slotKey, slot);
+            if (current != null) current.deliver(new ArrayList<>());
+        });
+    }
+
+    public void cancel(int clientId, long requestId) {
+        Request request = requests.remove(clientId + "/" + requestId);
+        if (request != null) request.cancel();
+    }
+
+    private record SlotKey(int clientId, String modelId) {
+    }
+
+    private class Request {
+        private final int clientId;
+        private final long requestId;
+        private final PixelSource source;
+        private final float similarity;
+        private final IYoloAsyncCallback callback;
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private Request(int clientId, long requestId, PixelSource source, float similarity, IYoloAsyncCallback callback) {
+            this.clientId = clientId;
+            this.requestId = requestId;
+            this.source = source;
+            this.similarity = similarity;
+            this.callback = callback;
+        }
+
+        private String key() {
+            return clientId + "/" + requestId;
+        }
+
+        private boolean start() {
+            return !finished.get() && started.compareAndSet(false, true);
+        }
+
+        private void cancel() {
+            finished.set(true);
+        }
+
+        private void deliver(List<YoloResult> results) {
+            if (!finish()) return;
+            try {
+                callback.onResult(requestId, results);
+            } catch (RemoteException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private void drop() {
+            if (!finish()) return;
+            try {
+                callback.onDropped(requestId);
+            } catch (RemoteException e) {
+                e.printStackTrace();
+            }
+        }
+
+        private boolean finish() {
+            requests.remove(key(), this);
+            return finished.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package top.bogey.yolo.service;
+
+import android.graphics.Bitmap;
+
+import top.bogey.yolo.core.PixelSource;
+
+public class BitmapSource implements PixelSource {
+    private final Bitmap bitmap;
+
+    public BitmapSource(Bitmap bitmap) {
+        if (bitmap.getConfig() == Bitmap.Config.HARDWARE) bitmap = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+        this.bitmap = bitmap;
+    }
+
+    @Override
+    public int getWidth() {
+        return bitmap.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return bitmap.getHeight();
+    }
+
+    @Override
+    public void readRow(int y, int x, int width, int[] row) {
+        bitmap.getPixels(row, 0, width, x, y, width, 1);
+    }
+}
@@ -0,0 +1,64 @@
+package top.bogey.yolo.service;
+
+import android.graphics.PixelFormat;
+
+import java.nio.ByteBuffer;
+
+import top.bogey.yolo.core.PixelSource;
+
+// 直接从共享内存读取像素，不复制整帧
+public class BufferSource implements PixelSource {
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int width;
+    private final int height;
+    private final int stride;
+    private final int format;
+
+    public BufferSource(ByteBuffer buffer, int offset, int width, int height, int stride, int format) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.width = width;
+        this.height = height;
+        this.stride = stride;
+        this.format = format;
+    }
+
+    public static int getBytesPerPixel(int format) {
+        return switch (format) {
+            case PixelFormat.RGBA_8888, PixelFormat.RGBX_8888 -> 4;
+            case PixelFormat.RGB_888 -> 3;
+            default -> 0;
+        };
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void readRow(int y, int x, int width, int[] row) {
+        if (format == PixelFormat.RGB_888) {
+            int index = offset + y * stride + x * 3;
+            for (int i = 0; i < width; i++, index += 3) {
+                int r = buffer.get(index) & 0xFF;
+                int g = buffer.get(index + 1) & 0xFF;
+                int b = buffer.get(index + 2) & 0xFF;
+                row[i] = 0xFF000000 | (r << 16) | (g << 8) | b;
+            }
+        } else {
+            // 内存中为 R,G,B,A，按小端读取后交换 R 与 B
+            int index = offset + y * stride + x * 4;
+            for (int i = 0; i < width; i++, index += 4) {
+                int color = buffer.getInt(index);
+                row[i] = (color & 0xFF00FF00) | ((color >> 16) & 0xFF) | ((color & 0xFF) << 16);
+            }
+        }
+    }
+}
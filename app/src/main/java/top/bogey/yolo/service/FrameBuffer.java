@@ -0,0 +1,86 @@
+package top.bogey.yolo.service;
+
+import android.os.IBinder;
+import android.os.RemoteException;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import top.bogey.yolo.core.PixelSource;
+
+// 客户端注册的共享内存帧环，每帧只传槽位号与尺寸，只有注册方可以使用
+public class FrameBuffer implements AutoCloseable {
+    private final SharedMemory memory;
+    private final ByteBuffer mapping;
+    private final int slotSize;
+    private final int owner;
+    private IBinder client;
+    private IBinder.DeathRecipient recipient;
+    private int users;
+    private boolean closing;
+
+    public FrameBuffer(SharedMemory memory, int slotSize, int owner) throws ErrnoException {
+        this.memory = memory;
+        this.slotSize = slotSize;
+        this.owner = owner;
+        mapping = memory.mapReadOnly();
+        mapping.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // 注册方的 uid
+    public int getOwner() {
+        return owner;
+    }
+
+    // 注册方进程退出时回调 recipient，注册方已退出时返回 false
+    public synchronized boolean linkToDeath(IBinder client, IBinder.DeathRecipient recipient) {
+        try {
+            client.linkToDeath(recipient, 0);
+        } catch (RemoteException e) {
+            return false;
+        }
+        this.client = client;
+        this.recipient = recipient;
+        return true;
+    }
+
+    public int getSlotCount() {
+        return slotSize > 0 ? mapping.capacity() / slotSize : 0;
+    }
+
+    public PixelSource getSlot(int slot, int width, int height, int stride, int format) {
+        int bytesPerPixel = BufferSource.getBytesPerPixel(format);
+        if (bytesPerPixel == 0 || width <= 0 || height <= 0) return null;
+        if (slot < 0 || slot >= getSlotCount()) return null;
+        if (stride < width * bytesPerPixel) return null;
+        if ((long) stride * (height - 1) + (long) width * bytesPerPixel > slotSize) return null;
+        return new BufferSource(mapping, slot * slotSize, width, height, stride, format);
+    }
+
+    public synchronized boolean acquire() {
+        if (closing) return false;
+        users++;
+        return true;
+    }
+
+    public synchronized void release() {
+        users--;
+        if (closing && users == 0) destroy();
+    }
+
+    // 正在读取的帧环在读取结束后才解除映射
+    @Override
+    public synchronized void close() {
+        if (closing) return;
+        closing = true;
+        if (client != null) client.unlinkToDeath(recipient, 0);
+        if (users == 0) destroy();
+    }
+
+    private void destroy() {
+        SharedMemory.unmap(mapping);
+        memory.close();
+    }
+}
@@ -0,0 +1,158 @@
+package top.bogey.yolo.service;
+
+import android.graphics.Rect;
+import android.os.Bundle;
+
+import com.google.ai.edge.litert.LiteRtException;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import top.bogey.yolo.core.Detections;
+import top.bogey.yolo.core.PixelSource;
+
+// 按客户端、会话和模型缓存上一帧的缩略特征与结果，画面未变化时直接复用，局部变化时只重新识别变化区域
+public class FrameCache {
+    private static final int GRID = 16;
+    private static final int ROWS_PER_CELL = 4;
+    private static final int MAX_ENTRIES = 32;
+    // 变化区域超过整帧的这个比例时直接整帧识别
+    private static final float FULL_DETECT_RATIO = 0.5f;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong partials = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    // 需在模型的串行队列中调用，不属于会话时 sessionId 为 0，返回的结果在同一客户端下次调用前有效
+    public Detections detect(int clientId, int sessionId, YoloModel model, PixelSource source, YoloOptions options) throws LiteRtException {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] signature = signature(source);
+
+        Key key = new Key(clientId, sessionId, model.getModelInfo().getId());
+        Entry entry = entries.get(key);
+        if (entry == null || entry.width != width || entry.height != height || !entry.options.sameDetection(options)) {
+            misses.incrementAndGet();
+            return store(key, signature, width, height, options, model.detect(source, options));
+        }
+
+        Rect changed = changedArea(entry.signature, signature, options.getFrameTolerance(), width, height);
+        if (changed == null) {
+            hits.incrementAndGet();
+            return entry.detections;
+        }
+
+        // 与变化区域相交的旧框一并重新识别，避免物体被切开
+        Detections cached = entry.detections;
+        for (int i = 0; i < cached.size(); i++) {
+            if (intersects(cached, i, changed)) {
+                changed.union((int) Math.floor(cached.getLeft(i)), (int) Math.floor(cached.getTop(i)), (int) Math.ceil(cached.getRight(i)), (int) Math.ceil(cached.getBottom(i)));
+            }
+        }
+        if (!changed.intersect(0, 0, width, height) || (long) changed.width() * changed.height() > FULL_DETECT_RATIO * width * height) {
+            misses.incrementAndGet();
+            return store(key, signature, width, height, options, model.detect(source, options));
+        }
+
+        partials.incrementAndGet();
+        Detections detections = new Detections();
+        for (int i = 0; i < cached.size(); i++) {
+            if (!intersects(cached, i, changed)) detections.add(cached, i, 0, 0);
+        }
+        Detections results = model.detect(source, options.copy().setRegions(Collections.singletonList(changed)));
+        for (int i = 0; i < results.size(); i++) {
+            detections.add(results, i, 0, 0);
+        }
+        entries.put(key, new Entry(signature, width, height, options, detections));
+        return detections;
+    }
+
+    private Detections store(Key key, int[] signature, int width, int height, YoloOptions options, Detections results) {
+        Detections detections = new Detections();
+        for (int i = 0; i < results.size(); i++) {
+            detections.add(results, i, 0, 0);
+        }
+        if (entries.size() >= MAX_ENTRIES && !entries.containsKey(key)) entries.clear();
+        entries.put(key, new Entry(signature, width, height, options, detections));
+        return detections;
+    }
+
+    // 每格取若干整行像素的平均亮度
+    private static int[] signature(PixelSource source) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] row = new int[width];
+        int[] sums = new int[GRID * GRID];
+        int[] counts = new int[GRID * GRID];
+
+        int rows = GRID * ROWS_PER_CELL;
+        for (int i = 0; i < rows; i++) {
+            int y = (int) ((i + 0.5f) * height / rows);
+            source.readRow(y, 0, width, row);
+            int cellY = Math.min(y * GRID / height, GRID - 1) * GRID;
+            for (int x = 0; x < width; x++) {
+                int pixel = row[x];
+                int luma = (((pixel >> 16) & 0xFF) * 77 + ((pixel >> 8) & 0xFF) * 150 + (pixel & 0xFF) * 29) >> 8;
+                int cell = cellY + x * GRID / width;
+                sums[cell] += luma;
+                counts[cell]++;
+            }
+        }
+
+        for (int i = 0; i < sums.length; i++) {
+            if (counts[i] > 0) sums[i] /= counts[i];
+        }
+        return sums;
+    }
+
+    // 返回变化格子的外接矩形并向外扩一格，未变化时返回 null
+    private static Rect changedArea(int[] previous, int[] current, float tolerance, int width, int height) {
+        int left = GRID, top = GRID, right = -1, bottom = -1;
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                int index = y * GRID + x;
+                if (Math.abs(previous[index] - current[index]) <= tolerance) continue;
+                left = Math.min(left, x);
+                top = Math.min(top, y);
+                right = Math.max(right, x);
+                bottom = Math.max(bottom, y);
+            }
+        }
+        if (right < 0) return null;
+
+        left = Math.max(0, left - 1);
+        top = Math.max(0, top - 1);
+        right = Math.min(GRID, right + 2);
+        bottom = Math.min(GRID, bottom + 2);
+        return new Rect(left * width / GRID, top * height / GRID, right * width / GRID, bottom * height / GRID);
+    }
+
+    private static boolean intersects(Detections detections, int index, Rect rect) {
+        return detections.getLeft(index) < rect.right && detections.getRight(index) > rect.left && detections.getTop(index) < rect.bottom && detections.getBottom(index) > rect.top;
+    }
+
+    public Bundle getStats(boolean reset) {
+        Bundle bundle = new Bundle();
+        bundle.putLong("hits", reset ? hits.getAndSet(0) : hits.get());
+        bundle.putLong("partials", reset ? partials.getAndSet(0) : partials.get());
+        bundle.putLong("misses", reset ? misses.getAndSet(0) : misses.get());
+        return bundle;
+    }
+
+    public void removeSession(int sessionId) {
+        entries.keySet().removeIf(key -> key.sessionId == sessionId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private record Key(int clientId, int sessionId, String modelId) {
+    }
+
+    private record Entry(int[] signature, int width, int height, YoloOptions options, Detections detections) {
+    }
+}
@@ -0,0 +1,239 @@
+package top.bogey.yolo.service;
+
+import android.os.Bundle;
+
+import com.google.ai.edge.litert.Accelerator;
+import com.google.ai.edge.litert.LiteRtException;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import top.bogey.yolo.bean.ModelInfo;
+
+// 推理调度：每个模型一个串行队列，GPU 模型统一在单独线程提交，CPU 模型分散到线程池，超过并发上限时阻塞调用方
+public class InferenceScheduler {
+    public static final int DEFAULT_MAX_IN_FLIGHT = 8;
+    private static final long ADMISSION_TIMEOUT = 5000;
+    private static final int DRAIN_BATCH = 4;
+
+    public interface ModelLoader {
+        // 返回已占用的模型，用完后需调用 release
+        YoloModel acquire(ModelInfo modelInfo);
+
+        void evict(ModelInfo modelInfo);
+    }
+
+    public interface Task<T> {
+        T run(YoloModel model) throws LiteRtException;
+    }
+
+    private final ModelLoader loader;
+    private final ExecutorService gpuExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "yolo-gpu"));
+    private final ExecutorService cpuExecutor;
+    private final Map<String, SerialQueue> queues = new ConcurrentHashMap<>();
+    private final Permits permits = new Permits(DEFAULT_MAX_IN_FLIGHT);
+    private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public InferenceScheduler(ModelLoader loader) {
+        this.loader = loader;
+        int threads = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+        AtomicInteger index = new AtomicInteger();
+        cpuExecutor = Executors.newFixedThreadPool(threads, runnable -> new Thread(runnable, "yolo-cpu-" + index.incrementAndGet()));
+    }
+
+    public synchronized void setMaxInFlight(int max) {
+        if (max <= 0) max = DEFAULT_MAX_IN_FLIGHT;
+        if (max > maxInFlight) permits.release(max - maxInFlight);
+        else if (max < maxInFlight) permits.reduce(maxInFlight - max);
+        maxInFlight = max;
+    }
+
+    // 模型不可用、推理失败或等待超时时结果为 null
+    public <T> CompletableFuture<T> submit(ModelInfo modelInfo, Task<T> task) {
+        return submit(modelInfo, null, task);
+    }
+
+    // pinned 不为空时直接使用调用方占用的模型，不经过加载器，仍在该模型的队列中执行
+    public <T> CompletableFuture<T> submit(ModelInfo modelInfo, YoloModel pinned, Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            if (!permits.tryAcquire(ADMISSION_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                future.complete(null);
+                return future;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.complete(null);
+            return future;
+        }
+        return enqueue(modelInfo, pinned, task);
+    }
+
+    // 没有空闲名额时立即返回 null，不阻塞调用方，用于 oneway 调用
+    public <T> CompletableFuture<T> trySubmit(ModelInfo modelInfo, Task<T> task) {
+        if (!permits.tryAcquire()) {
+            rejected.incrementAndGet();
+            return null;
+        }
+        return enqueue(modelInfo, null, task);
+    }
+
+    private <T> CompletableFuture<T> enqueue(ModelInfo modelInfo, YoloModel pinned, Task<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        getQueue(modelInfo).execute(new Job(() -> {
+            try {
+                future.complete(pinned == null ? run(modelInfo, task) : run(pinned, task));
+            } catch (Throwable e) {
+                errors.incrementAndGet();
+                future.completeExceptionally(e);
+            } finally {
+                permits.release();
+            }
+        }, () -> {
+            future.complete(null);
+            permits.release();
+        }));
+        return future;
+    }
+
+    public <T> T execute(ModelInfo modelInfo, Task<T> task) {
+        return execute(modelInfo, null, task);
+    }
+
+    public <T> T execute(ModelInfo modelInfo, YoloModel pinned, Task<T> task) {
+        try {
+            return submit(modelInfo, pinned, task).join();
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // 排在该模型已提交的任务之后释放调用方占用的模型，不受并发上限限制，关闭后直接释放
+    public void release(ModelInfo modelInfo, YoloModel pinned) {
+        getQueue(modelInfo).execute(new Job(pinned::release, pinned::release));
+    }
+
+    // 按模型与加速方式区分队列，重新测速后切换加速方式的模型进入对应线程的新队列
+    private SerialQueue getQueue(ModelInfo modelInfo) {
+        Accelerator accelerator = modelInfo.getAccelerator();
+        return queues.computeIfAbsent(modelInfo.getId() + "/" + accelerator, key -> new SerialQueue(accelerator == Accelerator.GPU ? gpuExecutor : cpuExecutor));
+    }
+
+    private <T> T run(ModelInfo modelInfo, Task<T> task) {
+        YoloModel model = loader.acquire(modelInfo);
+        if (model == null) {
+            errors.incrementAndGet();
+            return null;
+        }
+        try {
+            return task.run(model);
+        } catch (LiteRtException e) {
+            e.printStackTrace();
+            errors.incrementAndGet();
+            loader.evict(modelInfo);
+            return null;
+        } finally {
+            model.release();
+        }
+    }
+
+    // 占用的模型推理失败时不淘汰，由占用方决定何时释放
+    private <T> T run(YoloModel pinned, Task<T> task) {
+        try {
+            return task.run(pinned);
+        } catch (LiteRtException e) {
+            e.printStackTrace();
+            errors.incrementAndGet();
+            return null;
+        }
+    }
+
+    // 模型加载或推理失败次数，以及等待超时被拒绝的请求数
+    public Bundle getStats() {
+        Bundle bundle = new Bundle();
+        bundle.putLong("errors", errors.get());
+        bundle.putLong("rejected", rejected.get());
+        bundle.putInt("available", permits.availablePermits());
+        return bundle;
+    }
+
+    // 已在执行的任务照常完成，排队中与之后提交的任务不再执行，识别结果为 null，占用的模型直接释放
+    public void shutdown() {
+        gpuExecutor.shutdown();
+        cpuExecutor.shutdown();
+        queues.values().forEach(SerialQueue::cancelAll);
+    }
+
+    // cancel 在调度器关闭后代替 task 执行
+    private record Job(Runnable task, Runnable cancel) {
+    }
+
+    // 同一模型的任务依次执行，提交方只做无锁入队
+    private static class SerialQueue {
+        private final Queue<Job> jobs = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Executor executor;
+
+        private SerialQueue(Executor executor) {
+            this.executor = executor;
+        }
+
+        private void execute(Job job) {
+            jobs.offer(job);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled.compareAndSet(false, true)) return;
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                scheduled.set(false);
+                cancelAll();
+            }
+        }
+
+        private void drain() {
+            for (int i = 0; i < DRAIN_BATCH; i++) {
+                Job job = jobs.poll();
+                if (job == null) break;
+                job.task().run();
+            }
+            scheduled.set(false);
+            if (!jobs.isEmpty()) schedule();
+        }
+
+        private void cancelAll() {
+            Job job;
+            while ((job = jobs.poll()) != null) {
+                job.cancel().run();
+            }
+        }
+    }
+
+    private static class Permits extends Semaphore {
+        private Permits(int permits) {
+            super(permits);
+        }
+
+        private void reduce(int reduction) {
+            reducePermits(reduction);
+        }
+    }
+}
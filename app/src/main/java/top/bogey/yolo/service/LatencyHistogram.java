@@ -0,0 +1,74 @@
+package top.bogey.yolo.service;
+
+import android.os.Bundle;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// 无锁对数分桶直方图，单位微秒，每个二次幂区间再分 8 个子桶，相对误差不超过 12.5%
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKET_COUNT = 40 * SUB_COUNT;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        buckets.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        sum.addAndGet(micros);
+        max.accumulateAndGet(micros, Math::max);
+    }
+
+    private static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return Math.min((exponent - SUB_BITS + 1) * SUB_COUNT + sub, BUCKET_COUNT - 1);
+    }
+
+    private static long lowerBound(int index) {
+        if (index < SUB_COUNT) return index;
+        int exponent = index / SUB_COUNT + SUB_BITS - 1;
+        int sub = index % SUB_COUNT;
+        return (long) (SUB_COUNT + sub) << (exponent - SUB_BITS);
+    }
+
+    // 读取时不加锁，各数值可能来自相邻的几次记录
+    public Bundle toBundle() {
+        long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = buckets.get(i);
+            total += snapshot[i];
+        }
+
+        Bundle bundle = new Bundle();
+        bundle.putLong("count", total);
+        bundle.putLong("meanUs", total == 0 ? 0 : sum.get() / Math.max(1, count.get()));
+        bundle.putLong("p50Us", percentile(snapshot, total, 0.5));
+        bundle.putLong("p90Us", percentile(snapshot, total, 0.9));
+        bundle.putLong("p99Us", percentile(snapshot, total, 0.99));
+        bundle.putLong("maxUs", max.get());
+        return bundle;
+    }
+
+    private static long percentile(long[] snapshot, long total, double percent) {
+        if (total == 0) return 0;
+        long target = (long) Math.ceil(total * percent);
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= target) return lowerBound(i);
+        }
+        return lowerBound(snapshot.length - 1);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+}
@@ -0,0 +1,106 @@
+package top.bogey.yolo.service;
+
+import android.os.Bundle;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+// 按最近使用顺序淘汰的模型缓存，同时限制数量与模型文件总大小，常驻模型不参与淘汰
+public class ModelCache {
+    public static final int DEFAULT_MAX_COUNT = 3;
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private final LinkedHashMap<String, Entry> models = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<String> pinned = new HashSet<>();
+    private int maxCount = DEFAULT_MAX_COUNT;
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long totalBytes;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    // 返回已占用的模型，用完后需调用 release
+    public synchronized YoloModel acquire(String id) {
+        Entry entry = models.get(id);
+        if (entry == null || !entry.model.acquire()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.model;
+    }
+
+    // 加载新模型前腾出空间，避免新旧模型同时占用显存
+    public synchronized void reserve(long bytes) {
+        trim(1, bytes);
+    }
+
+    public synchronized void put(String id, YoloModel model, long bytes) {
+        Entry old = models.remove(id);
+        if (old != null) {
+            totalBytes -= old.bytes;
+            if (old.model != model) old.model.close();
+        }
+        trim(1, bytes);
+        models.put(id, new Entry(model, bytes));
+        totalBytes += bytes;
+    }
+
+    public synchronized void remove(String id) {
+        Entry entry = models.remove(id);
+        if (entry == null) return;
+        totalBytes -= entry.bytes;
+        entry.model.close();
+    }
+
+    public synchronized void setPinned(String id, boolean pin) {
+        if (pin) pinned.add(id);
+        else pinned.remove(id);
+    }
+
+    public synchronized void setBudget(int maxCount, long maxBytes) {
+        this.maxCount = maxCount > 0 ? maxCount : DEFAULT_MAX_COUNT;
+        this.maxBytes = maxBytes > 0 ? maxBytes : DEFAULT_MAX_BYTES;
+        trim(0, 0);
+    }
+
+    // 释放所有非常驻模型
+    public synchronized void evictAll() {
+        trim(Integer.MAX_VALUE / 2, Long.MAX_VALUE / 2);
+    }
+
+    public synchronized void clear() {
+        models.forEach((id, entry) -> entry.model.close());
+        models.clear();
+        pinned.clear();
+        totalBytes = 0;
+    }
+
+    private void trim(int extraCount, long extraBytes) {
+        Iterator<Map.Entry<String, Entry>> iterator = models.entrySet().iterator();
+        while (iterator.hasNext() && (models.size() + extraCount > maxCount || totalBytes + extraBytes > maxBytes)) {
+            Map.Entry<String, Entry> next = iterator.next();
+            if (pinned.contains(next.getKey())) continue;
+            iterator.remove();
+            totalBytes -= next.getValue().bytes;
+            next.getValue().model.close();
+            evictions++;
+        }
+    }
+
+    public synchronized Bundle getStats() {
+        Bundle bundle = new Bundle();
+        bundle.putLong("hits", hits);
+        bundle.putLong("misses", misses);
+        bundle.putLong("evictions", evictions);
+        bundle.putInt("count", models.size());
+        bundle.putLong("bytes", totalBytes);
+        return bundle;
+    }
+
+    private record Entry(YoloModel model, long bytes) {
+    }
+}
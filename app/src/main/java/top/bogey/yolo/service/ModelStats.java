@@ -0,0 +1,58 @@
+package top.bogey.yolo.service;
+
+import android.os.Bundle;
+import android.os.Trace;
+
+// 单个模型各阶段的耗时统计，同时输出 systrace/Perfetto 区段
+public class ModelStats {
+    public enum Stage {
+        UNMARSHAL("yolo:unmarshal"),
+        // 缩放、填充与归一化在同一次遍历中完成
+        PREPROCESS("yolo:preprocess"),
+        WRITE("yolo:write"),
+        RUN("yolo:run"),
+        READ("yolo:read"),
+        DECODE("yolo:decode"),
+        NMS("yolo:nms"),
+        CALLBACK("yolo:callback"),
+        TOTAL("yolo:total");
+
+        private final String section;
+
+        Stage(String section) {
+            this.section = section;
+        }
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+
+    public ModelStats() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    // 与 end 成对调用，需在同一线程
+    public long begin(Stage stage) {
+        Trace.beginSection(stage.section);
+        return System.nanoTime();
+    }
+
+    public void end(Stage stage, long start) {
+        record(stage, System.nanoTime() - start);
+        Trace.endSection();
+    }
+
+    public void record(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    public Bundle toBundle() {
+        Bundle bundle = new Bundle();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histograms[stage.ordinal()];
+            if (histogram.getCount() > 0) bundle.putBundle(stage.name().toLowerCase(), histogram.toBundle());
+        }
+        return bundle;
+    }
+}
@@ -0,0 +1,67 @@
+package top.bogey.yolo.service;
+
+import com.google.ai.edge.litert.LiteRtException;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import top.bogey.yolo.core.Detections;
+import top.bogey.yolo.core.PixelSource;
+import top.bogey.yolo.core.Tracker;
+
+// 按客户端、会话和模型保存跟踪状态，隔帧识别时中间帧只做运动预测，不调用模型
+public class ObjectTracker {
+    // 跟踪时以较低阈值识别，低分框只用于延续已有跟踪
+    private static final float LOW_SIMILARITY = 0.1f;
+    private static final int MAX_ENTRIES = 32;
+
+    public interface Detector {
+        Detections detect(YoloOptions options) throws LiteRtException;
+    }
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    // 需在模型的串行队列中调用，不属于会话时 sessionId 为 0
+    public Detections detect(int clientId, int sessionId, String modelId, PixelSource source, YoloOptions options, Detector detector) throws LiteRtException {
+        Key key = new Key(clientId, sessionId, modelId);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.width != source.getWidth() || entry.height != source.getHeight() || !entry.options.sameDetection(options)) {
+            if (entries.size() >= MAX_ENTRIES && entry == null) entries.clear();
+            entry = new Entry(source.getWidth(), source.getHeight(), options);
+            entries.put(key, entry);
+        }
+
+        int frame = entry.frame++;
+        int interval = Math.max(1, options.getDetectInterval());
+        if (frame % interval != 0 && !entry.tracker.isEmpty()) return entry.tracker.predict();
+
+        float similarity = options.getSimilarity();
+        YoloOptions lowOptions = options.copy().setSimilarity(Math.min(similarity, LOW_SIMILARITY));
+        return entry.tracker.update(detector.detect(lowOptions), similarity);
+    }
+
+    public void removeSession(int sessionId) {
+        entries.keySet().removeIf(key -> key.sessionId == sessionId);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    private record Key(int clientId, int sessionId, String modelId) {
+    }
+
+    private static class Entry {
+        private final Tracker tracker = new Tracker();
+        private final int width;
+        private final int height;
+        private final YoloOptions options;
+        private int frame;
+
+        private Entry(int width, int height, YoloOptions options) {
+            this.width = width;
+            this.height = height;
+            this.options = options;
+        }
+    }
+}
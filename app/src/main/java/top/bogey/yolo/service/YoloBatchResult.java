@@ -0,0 +1,63 @@
+package top.bogey.yolo.service;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+import java.util.List;
+
+public class YoloBatchResult implements Parcelable {
+    private final int index;
+    private final List<YoloResult> results;
+
+    public YoloBatchResult(int index, List<YoloResult> results) {
+        this.index = index;
+        this.results = results;
+    }
+
+    protected YoloBatchResult(Parcel in) {
+        index = in.readInt();
+        results = in.createTypedArrayList(YoloResult.CREATOR);
+    }
+
+    public static final Creator<YoloBatchResult> CREATOR = new Creator<>() {
+        @Override
+        public YoloBatchResult createFromParcel(Parcel in) {
+            return new YoloBatchResult(in);
+        }
+
+        @Override
+        public YoloBatchResult[] newArray(int size) {
+            return new YoloBatchResult[size];
+        }
+    };
+
+    public int getIndex() {
+        return index;
+    }
+
+    public List<YoloResult> getResults() {
+        return results;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "YoloBatchResult{" +
+                "index=" + index +
+                ", results=" + results +
+                '}';
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        dest.writeInt(index);
+        dest.writeTypedList(results);
+    }
+}
@@ -0,0 +1,393 @@
+package top.bogey.yolo.service;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+import android.graphics.RectF;
+
+import com.google.ai.edge.litert.CompiledModel;
+import com.google.ai.edge.litert.LiteRtException;
+import com.google.ai.edge.litert.TensorBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import top.bogey.yolo.bean.ModelInfo;
+import top.bogey.yolo.bean.YoloVersion;
+import top.bogey.yolo.core.CropSource;
+import top.bogey.yolo.core.Detections;
+import top.bogey.yolo.core.LetterBox;
+import top.bogey.yolo.core.ModelInput;
+import top.bogey.yolo.core.NonMaxSuppression;
+import top.bogey.yolo.core.PixelSource;
+import top.bogey.yolo.core.StripeExecutor;
+import top.bogey.yolo.core.TensorType;
+import top.bogey.yolo.core.TfliteReader;
+import top.bogey.yolo.core.TileGrid;
+import top.bogey.yolo.core.YoloDecoder;
+
+// 编译后的模型及其输入输出缓冲，缓冲在模型生命周期内复用
+public class YoloModel implements AutoCloseable {
+    private final ModelInfo modelInfo;
+    private final CompiledModel model;
+    private final List<TensorBuffer> inputs;
+    private final List<TensorBuffer> outputs;
+    private final int batchSize;
+    private final Executor executor;
+    private final ModelStats stats;
+
+    private final ModelInput input;
+    private ModelInput spareInput;
+
+    private final TensorType outputType;
+    private final float outputScale;
+    private final int outputZeroPoint;
+    private final float[] outputValues;
+
+    private final YoloDecoder decoder;
+    private final boolean endToEnd;
+    private final NonMaxSuppression nonMaxSuppression = new NonMaxSuppression();
+    private final Detections results = new Detections();
+    private final Detections merged = new Detections();
+
+    private int users;
+    private boolean closing;
+
+    // tflite 为模型文件中记录的张量信息，无法读取时按 float 输入输出并由输出长度推算默认布局
+    public YoloModel(ModelInfo modelInfo, CompiledModel model, TfliteReader.Model tflite, ModelStats stats, Executor executor, StripeExecutor stripeExecutor) throws LiteRtException {
+        this.modelInfo = modelInfo;
+        this.model = model;
+        this.stats = stats;
+        this.executor = executor;
+        List<TensorBuffer> inputs = null;
+        List<TensorBuffer> outputs = null;
+        try {
+            inputs = model.createInputBuffers();
+            outputs = model.createOutputBuffers();
+            this.inputs = inputs;
+            this.outputs = outputs;
+
+            // 量化与半精度模型直接写入原始字节，省去转换为 float 再由模型还原
+            TfliteReader.Tensor inputTensor = tflite == null ? null : tflite.inputs().get(0);
+            TensorType inputType = getType(inputTensor);
+            TfliteReader.Tensor outputTensor = tflite == null ? null : tflite.outputs().get(0);
+            outputType = getType(outputTensor);
+            outputScale = outputTensor == null || outputTensor.scale() <= 0 ? 1 : outputTensor.scale();
+            outputZeroPoint = outputTensor == null ? 0 : outputTensor.zeroPoint();
+
+            // 输入张量可容纳多张图片时按批处理
+            int imageSize = modelInfo.getImageSize();
+            int imageLength = imageSize * imageSize * 3;
+            int inputLength = getLength(inputs.get(0), inputType);
+            batchSize = Math.max(1, inputLength / imageLength);
+            input = new ModelInput(imageSize, inputLength, inputType, inputTensor == null ? 0 : inputTensor.scale(), inputTensor == null ? 0 : inputTensor.zeroPoint(), stripeExecutor);
+
+            int totalOutputLength = getLength(outputs.get(0), outputType);
+            outputValues = outputType == TensorType.FLOAT32 ? null : new float[totalOutputLength];
+
+            endToEnd = modelInfo.getVersion() == YoloVersion.V10;
+            int classesNum = modelInfo.getLabels().size();
+            int outputLength = totalOutputLength / batchSize;
+            int[] outputShape = outputTensor == null ? null : outputTensor.shape();
+            YoloDecoder decoder = YoloDecoder.create(endToEnd, classesNum, outputShape);
+            if (decoder == null || decoder.getOutputLength() != outputLength) {
+                int[] shape = endToEnd ? new int[]{outputLength / 6, 6} : new int[]{4 + classesNum, outputLength / (4 + classesNum)};
+                decoder = YoloDecoder.create(endToEnd, classesNum, shape);
+            }
+            this.decoder = decoder;
+        } catch (LiteRtException | RuntimeException e) {
+            // 读取张量或创建解析器失败时释放已创建的缓冲区
+            if (inputs != null) inputs.forEach(TensorBuffer::close);
+            if (outputs != null) outputs.forEach(TensorBuffer::close);
+            model.close();
+            throw e;
+        }
+    }
+
+    private static TensorType getType(TfliteReader.Tensor tensor) {
+        TensorType type = tensor == null ? null : TensorType.of(tensor.type());
+        return type == null ? TensorType.FLOAT32 : type;
+    }
+
+    private static int getLength(TensorBuffer buffer, TensorType type) throws LiteRtException {
+        if (type == TensorType.FLOAT32) return buffer.readFloat().length;
+        return buffer.readInt8().length / type.getBytes();
+    }
+
+    public TensorType getInputType() {
+        return input.getType();
+    }
+
+    public ModelInfo getModelInfo() {
+        return modelInfo;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    // 返回的结果在下次调用前有效
+    public Detections detect(PixelSource source, float similarity) throws LiteRtException {
+        return detect(source, similarity, null);
+    }
+
+    // classIds 为空时识别全部类别
+    public Detections detect(PixelSource source, float similarity, int[] classIds) throws LiteRtException {
+        long start = stats.begin(ModelStats.Stage.PREPROCESS);
+        LetterBox letterBox;
+        try {
+            letterBox = input.process(source, 0);
+        } finally {
+            stats.end(ModelStats.Stage.PREPROCESS, start);
+        }
+        float[] output = run(input);
+        return parseOutput(output, 0, letterBox, similarity, classIds);
+    }
+
+    // 依次识别各区域或图块并还原到整张图片坐标，重叠处的重复框通过非极大值抑制去除
+    public Detections detect(PixelSource source, YoloOptions options) throws LiteRtException {
+        List<CropSource> areas = new ArrayList<>();
+        List<Rect> regions = options.getRegions();
+        if (regions.isEmpty()) {
+            addAreas(areas, source, 0, 0, source.getWidth(), source.getHeight(), options);
+        } else {
+            for (Rect region : regions) {
+                int left = Math.max(0, region.left);
+                int top = Math.max(0, region.top);
+                int right = Math.min(source.getWidth(), region.right);
+                int bottom = Math.min(source.getHeight(), region.bottom);
+                if (right <= left || bottom <= top) continue;
+                addAreas(areas, source, left, top, right, bottom, options);
+            }
+        }
+
+        float similarity = options.getSimilarity();
+        int[] classIds = options.getClassIds();
+        if (regions.isEmpty() && areas.size() == 1) return detect(source, similarity, classIds);
+
+        merged.clear();
+        detect(areas, similarity, classIds, (index, detections) -> {
+            CropSource area = areas.get(index);
+            for (int i = 0; i < detections.size(); i++) {
+                merged.add(detections, i, area.getLeft(), area.getTop());
+            }
+        });
+        return suppress(merged);
+    }
+
+    private void addAreas(List<CropSource> areas, PixelSource source, int left, int top, int right, int bottom, YoloOptions options) {
+        int width = right - left;
+        int height = bottom - top;
+        if (options.getTileSize() <= 0) {
+            areas.add(new CropSource(source, left, top, width, height));
+            return;
+        }
+
+        int[] tiles = TileGrid.split(width, height, options.getTileSize(), options.getTileOverlap(), options.getMaxTiles());
+        for (int i = 0; i < tiles.length; i += 4) {
+            areas.add(new CropSource(source, left + tiles[i], top + tiles[i + 1], tiles[i + 2] - tiles[i], tiles[i + 3] - tiles[i + 1]));
+        }
+    }
+
+    private Detections suppress(Detections detections) {
+        long start = stats.begin(ModelStats.Stage.NMS);
+        int count;
+        try {
+            count = nonMaxSuppression.run(detections, modelInfo.getNmsOptions());
+        } finally {
+            stats.end(ModelStats.Stage.NMS, start);
+        }
+        int[] kept = nonMaxSuppression.getKept();
+        results.clear();
+        for (int i = 0; i < count; i++) {
+            results.add(detections, kept[i], 0, 0);
+        }
+        return results;
+    }
+
+    public List<List<YoloResult>> detect(List<Bitmap> bitmaps, float similarity) throws LiteRtException {
+        List<PixelSource> sources = new ArrayList<>(bitmaps.size());
+        for (Bitmap bitmap : bitmaps) {
+            sources.add(bitmap == null ? null : new BitmapSource(bitmap));
+        }
+
+        List<List<YoloResult>> results = new ArrayList<>(bitmaps.size());
+        detect(sources, similarity, null, (index, detections) -> results.add(toResults(detections)));
+        return results;
+    }
+
+    // 按批次运行，当前批次推理时在 executor 中预处理下一批次，每个来源的结果依次交给 consumer
+    private void detect(List<? extends PixelSource> sources, float similarity, int[] classIds, DetectionConsumer consumer) throws LiteRtException {
+        if (spareInput == null) spareInput = new ModelInput(input);
+
+        int batchCount = (sources.size() + batchSize - 1) / batchSize;
+        CompletableFuture<LetterBox[]> next = CompletableFuture.completedFuture(prepare(sources, 0, input));
+        try {
+            for (int batch = 0; batch < batchCount; batch++) {
+                LetterBox[] letterBoxes;
+                try {
+                    letterBoxes = next.join();
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof RuntimeException runtimeException) throw runtimeException;
+                    throw e;
+                }
+
+                boolean even = batch % 2 == 0;
+                ModelInput current = even ? input : spareInput;
+                if (batch + 1 < batchCount) {
+                    int start = (batch + 1) * batchSize;
+                    ModelInput nextInput = even ? spareInput : input;
+                    next = CompletableFuture.supplyAsync(() -> prepare(sources, start, nextInput), executor);
+                }
+
+                float[] output = run(current);
+                int outputLength = output.length / batchSize;
+                for (int i = 0; i < letterBoxes.length; i++) {
+                    LetterBox letterBox = letterBoxes[i];
+                    if (letterBox == null) this.results.clear();
+                    else parseOutput(output, i * outputLength, letterBox, similarity, classIds);
+                    consumer.accept(batch * batchSize + i, this.results);
+                }
+            }
+        } finally {
+            // 推理或解析异常时下一批次可能仍在写入备用输入，等其结束后再离开，避免与队列中的下一个任务同时使用
+            try {
+                next.join();
+            } catch (RuntimeException ignored) {
+            }
+        }
+    }
+
+    private interface DetectionConsumer {
+        void accept(int index, Detections detections);
+    }
+
+    private LetterBox[] prepare(List<? extends PixelSource> sources, int start, ModelInput input) {
+        int count = Math.min(batchSize, sources.size() - start);
+        LetterBox[] letterBoxes = new LetterBox[count];
+        for (int i = 0; i < count; i++) {
+            PixelSource source = sources.get(start + i);
+            if (source == null) continue;
+            long begin = stats.begin(ModelStats.Stage.PREPROCESS);
+            try {
+                letterBoxes[i] = input.process(source, i);
+            } finally {
+                stats.end(ModelStats.Stage.PREPROCESS, begin);
+            }
+        }
+        return letterBoxes;
+    }
+
+    // 预先运行一次，让加速器完成首帧的初始化
+    public void warmUp() throws LiteRtException {
+        run(input);
+    }
+
+    private float[] run(ModelInput input) throws LiteRtException {
+        long start = stats.begin(ModelStats.Stage.WRITE);
+        try {
+            if (input.getType() == TensorType.FLOAT32) inputs.get(0).writeFloat(input.getFloats());
+            else inputs.get(0).writeInt8(input.getBytes());
+        } finally {
+            stats.end(ModelStats.Stage.WRITE, start);
+        }
+
+        start = stats.begin(ModelStats.Stage.RUN);
+        try {
+            model.run(inputs, outputs);
+        } finally {
+            stats.end(ModelStats.Stage.RUN, start);
+        }
+
+        start = stats.begin(ModelStats.Stage.READ);
+        try {
+            if (outputType == TensorType.FLOAT32) return outputs.get(0).readFloat();
+            outputType.toFloat(outputs.get(0).readInt8(), outputScale, outputZeroPoint, outputValues);
+            return outputValues;
+        } finally {
+            stats.end(ModelStats.Stage.READ, start);
+        }
+    }
+
+    // 解析并还原坐标，结果写入 results
+    private Detections parseOutput(float[] output, int offset, LetterBox letterBox, float similarity, int[] classIds) {
+        results.clear();
+        long start = stats.begin(ModelStats.Stage.DECODE);
+        Detections detections;
+        try {
+            detections = decoder.decode(output, offset, classIds, similarity);
+        } finally {
+            stats.end(ModelStats.Stage.DECODE, start);
+        }
+        if (endToEnd) {
+            for (int i = 0; i < detections.size(); i++) {
+                addResult(detections, i, letterBox);
+            }
+        } else {
+            start = stats.begin(ModelStats.Stage.NMS);
+            int count;
+            try {
+                count = nonMaxSuppression.run(detections, modelInfo.getNmsOptions());
+            } finally {
+                stats.end(ModelStats.Stage.NMS, start);
+            }
+            int[] kept = nonMaxSuppression.getKept();
+            for (int i = 0; i < count; i++) {
+                addResult(detections, kept[i], letterBox);
+            }
+        }
+        return results;
+    }
+
+    private void addResult(Detections detections, int index, LetterBox letterBox) {
+        int imageSize = modelInfo.getImageSize();
+        float offsetX = letterBox.offsetX();
+        float offsetY = letterBox.offsetY();
+        float scale = letterBox.scale();
+
+        float left = (detections.getLeft(index) * imageSize - offsetX) / scale;
+        float top = (detections.getTop(index) * imageSize - offsetY) / scale;
+        float right = (detections.getRight(index) * imageSize - offsetX) / scale;
+        float bottom = (detections.getBottom(index) * imageSize - offsetY) / scale;
+        results.add(left, top, right, bottom, detections.getClassId(index), detections.getScore(index));
+    }
+
+    public List<YoloResult> toResults(Detections detections) {
+        List<String> labels = modelInfo.getLabels();
+        List<YoloResult> list = new ArrayList<>(detections.size());
+        for (int i = 0; i < detections.size(); i++) {
+            RectF area = new RectF(detections.getLeft(i), detections.getTop(i), detections.getRight(i), detections.getBottom(i));
+            int classId = detections.getClassId(i);
+            String name = classId >= 0 && classId < labels.size() ? labels.get(classId) : "";
+            list.add(new YoloResult(area, name, detections.getScore(i)));
+        }
+        return list;
+    }
+
+    // 占用期间被淘汰的模型在最后一次 release 时才真正关闭
+    public synchronized boolean acquire() {
+        if (closing) return false;
+        users++;
+        return true;
+    }
+
+    public synchronized void release() {
+        users--;
+        if (closing && users == 0) destroy();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closing) return;
+        closing = true;
+        if (users == 0) destroy();
+    }
+
+    private void destroy() {
+        inputs.forEach(TensorBuffer::close);
+        outputs.forEach(TensorBuffer::close);
+        model.close();
+    }
+}
@@ -0,0 +1,210 @@
+package top.bogey.yolo.service;
+
+import android.graphics.Rect;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 识别参数，序列化时带长度前缀，新字段只追加在末尾，新旧客户端可互相兼容
+public class YoloOptions implements Parcelable {
+    private float similarity = 0.5f;
+    private List<Rect> regions = new ArrayList<>();
+    private int tileSize;
+    private float tileOverlap = 0.2f;
+    private int maxTiles = 16;
+    private float frameTolerance = -1;
+    private boolean tracking;
+    private int detectInterval = 1;
+    private int[] classIds = new int[0];
+
+    public YoloOptions() {
+    }
+
+    protected YoloOptions(Parcel in) {
+        int start = in.dataPosition();
+        int size = in.readInt();
+        int end = start + size;
+
+        if (in.dataPosition() < end) similarity = in.readFloat();
+        if (in.dataPosition() < end) regions = in.createTypedArrayList(Rect.CREATOR);
+        if (in.dataPosition() < end) tileSize = in.readInt();
+        if (in.dataPosition() < end) tileOverlap = in.readFloat();
+        if (in.dataPosition() < end) maxTiles = in.readInt();
+        if (in.dataPosition() < end) frameTolerance = in.readFloat();
+        if (in.dataPosition() < end) tracking = in.readInt() != 0;
+        if (in.dataPosition() < end) detectInterval = in.readInt();
+        if (in.dataPosition() < end) classIds = in.createIntArray();
+
+        // 调用方写入 null 列表或数组时读出为 null
+        if (regions == null) regions = new ArrayList<>();
+        if (classIds == null) classIds = new int[0];
+        in.setDataPosition(end);
+    }
+
+    public static final Creator<YoloOptions> CREATOR = new Creator<>() {
+        @Override
+        public YoloOptions createFromParcel(Parcel in) {
+            return new YoloOptions(in);
+        }
+
+        @Override
+        public YoloOptions[] newArray(int size) {
+            return new YoloOptions[size];
+        }
+    };
+
+    public float getSimilarity() {
+        return similarity;
+    }
+
+    public YoloOptions setSimilarity(float similarity) {
+        this.similarity = similarity;
+        return this;
+    }
+
+    // 只在这些区域内识别，坐标为整张图片坐标，为空时识别整张图片
+    public List<Rect> getRegions() {
+        return regions;
+    }
+
+    public YoloOptions setRegions(List<Rect> regions) {
+        this.regions = regions == null ? new ArrayList<>() : regions;
+        return this;
+    }
+
+    // 分块识别时每块的边长，单位为原图像素，小于等于 0 时不分块
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public YoloOptions setTileSize(int tileSize) {
+        this.tileSize = tileSize;
+        return this;
+    }
+
+    // 相邻图块的重叠比例
+    public float getTileOverlap() {
+        return tileOverlap;
+    }
+
+    public YoloOptions setTileOverlap(float tileOverlap) {
+        this.tileOverlap = tileOverlap;
+        return this;
+    }
+
+    // 图块数量上限，超出时自动放大图块
+    public int getMaxTiles() {
+        return maxTiles;
+    }
+
+    public YoloOptions setMaxTiles(int maxTiles) {
+        this.maxTiles = maxTiles;
+        return this;
+    }
+
+    // 与上一帧逐格比较的平均亮度容差，小于 0 时不复用上一帧结果
+    public float getFrameTolerance() {
+        return frameTolerance;
+    }
+
+    public YoloOptions setFrameTolerance(float frameTolerance) {
+        this.frameTolerance = frameTolerance;
+        return this;
+    }
+
+    // 为结果分配跨帧稳定的跟踪编号
+    public boolean isTracking() {
+        return tracking;
+    }
+
+    public YoloOptions setTracking(boolean tracking) {
+        this.tracking = tracking;
+        return this;
+    }
+
+    // 跟踪时每隔多少帧完整识别一次，其余帧按运动预测给出结果
+    public int getDetectInterval() {
+        return detectInterval;
+    }
+
+    public YoloOptions setDetectInterval(int detectInterval) {
+        this.detectInterval = detectInterval;
+        return this;
+    }
+
+    // 只识别这些类别，为空时识别全部类别，类别为模型标签表中的下标
+    public int[] getClassIds() {
+        return classIds;
+    }
+
+    public YoloOptions setClassIds(int[] classIds) {
+        this.classIds = classIds == null ? new int[0] : classIds;
+        return this;
+    }
+
+    public YoloOptions copy() {
+        YoloOptions options = new YoloOptions();
+        options.similarity = similarity;
+        options.regions = new ArrayList<>(regions);
+        options.tileSize = tileSize;
+        options.tileOverlap = tileOverlap;
+        options.maxTiles = maxTiles;
+        options.frameTolerance = frameTolerance;
+        options.tracking = tracking;
+        options.detectInterval = detectInterval;
+        options.classIds = classIds.clone();
+        return options;
+    }
+
+    // 识别结果是否只取决于相同的参数，用于判断上一帧的结果能否复用
+    boolean sameDetection(YoloOptions other) {
+        return similarity == other.similarity && regions.equals(other.regions) && tileSize == other.tileSize && tileOverlap == other.tileOverlap && maxTiles == other.maxTiles && Arrays.equals(classIds, other.classIds);
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "YoloOptions{" +
+                "similarity=" + similarity +
+                ", regions=" + regions +
+                ", tileSize=" + tileSize +
+                ", tileOverlap=" + tileOverlap +
+                ", maxTiles=" + maxTiles +
+                ", frameTolerance=" + frameTolerance +
+                ", tracking=" + tracking +
+                ", detectInterval=" + detectInterval +
+                ", classIds=" + Arrays.toString(classIds) +
+                '}';
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        int start = dest.dataPosition();
+        dest.writeInt(0);
+
+        dest.writeFloat(similarity);
+        dest.writeTypedList(regions);
+        dest.writeInt(tileSize);
+        dest.writeFloat(tileOverlap);
+        dest.writeInt(maxTiles);
+        dest.writeFloat(frameTolerance);
+        dest.writeInt(tracking ? 1 : 0);
+        dest.writeInt(detectInterval);
+        dest.writeIntArray(classIds);
+
+        int end = dest.dataPosition();
+        dest.setDataPosition(start);
+        dest.writeInt(end - start);
+        dest.setDataPosition(end);
+    }
+}
@@ -6,6 +6,7 @@ import android.os.Parcelable;
 
 import androidx.annotation.NonNull;
 
+// 序列化格式与旧版一致，列表中逐个读取，追加字段会使旧客户端从第二项起错位；类别下标与跟踪编号只通过 YoloResultSet 传输
 public class YoloResult implements Parcelable {
     private final RectF area;
     private final String name;
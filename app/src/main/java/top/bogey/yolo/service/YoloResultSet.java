@@ -0,0 +1,163 @@
+package top.bogey.yolo.service;
+
+import android.graphics.RectF;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.List;
+
+import top.bogey.yolo.core.Detections;
+
+// 以基本类型数组传输的检测结果，标签表通过 getModelLabels 单独获取一次，客户端按需解码
+// 序列化时先写总长度，新字段追加在末尾，读取方只读自己认识的字段并跳过其余部分
+public class YoloResultSet implements Parcelable {
+    private final float[] boxes;
+    private final int[] classIds;
+    private final float[] scores;
+    private final int[] trackIds;
+
+    public YoloResultSet() {
+        this(new float[0], new int[0], new float[0]);
+    }
+
+    public YoloResultSet(float[] boxes, int[] classIds, float[] scores) {
+        this(boxes, classIds, scores, untracked(scores.length));
+    }
+
+    public YoloResultSet(float[] boxes, int[] classIds, float[] scores, int[] trackIds) {
+        this.boxes = boxes;
+        this.classIds = classIds;
+        this.scores = scores;
+        this.trackIds = trackIds;
+    }
+
+    public YoloResultSet(Detections detections) {
+        int size = detections.size();
+        boxes = Arrays.copyOf(detections.getBoxes(), size * 4);
+        classIds = Arrays.copyOf(detections.getClassIds(), size);
+        scores = Arrays.copyOf(detections.getScores(), size);
+        trackIds = new int[size];
+        for (int i = 0; i < size; i++) {
+            trackIds[i] = detections.getTrackId(i);
+        }
+    }
+
+    protected YoloResultSet(Parcel in) {
+        int start = in.dataPosition();
+        int size = in.readInt();
+        int end = start + size;
+
+        float[] boxes = null;
+        int[] classIds = null;
+        float[] scores = null;
+        int[] trackIds = null;
+        if (in.dataPosition() < end) boxes = in.createFloatArray();
+        if (in.dataPosition() < end) classIds = in.createIntArray();
+        if (in.dataPosition() < end) scores = in.createFloatArray();
+        if (in.dataPosition() < end) trackIds = in.createIntArray();
+
+        this.scores = scores == null ? new float[0] : scores;
+        this.boxes = boxes == null ? new float[this.scores.length * 4] : boxes;
+        this.classIds = classIds == null ? new int[this.scores.length] : classIds;
+        this.trackIds = trackIds == null ? untracked(this.scores.length) : trackIds;
+        in.setDataPosition(end);
+    }
+
+    private static int[] untracked(int size) {
+        int[] trackIds = new int[size];
+        Arrays.fill(trackIds, -1);
+        return trackIds;
+    }
+
+    public static final Creator<YoloResultSet> CREATOR = new Creator<>() {
+        @Override
+        public YoloResultSet createFromParcel(Parcel in) {
+            return new YoloResultSet(in);
+        }
+
+        @Override
+        public YoloResultSet[] newArray(int size) {
+            return new YoloResultSet[size];
+        }
+    };
+
+    public int size() {
+        return scores.length;
+    }
+
+    // 依次为 left, top, right, bottom
+    public float[] getBoxes() {
+        return boxes;
+    }
+
+    public int[] getClassIds() {
+        return classIds;
+    }
+
+    public float[] getScores() {
+        return scores;
+    }
+
+    public int[] getTrackIds() {
+        return trackIds;
+    }
+
+    public RectF getArea(int index) {
+        return new RectF(boxes[index * 4], boxes[index * 4 + 1], boxes[index * 4 + 2], boxes[index * 4 + 3]);
+    }
+
+    public int getClassId(int index) {
+        return classIds[index];
+    }
+
+    public float getSimilar(int index) {
+        return scores[index];
+    }
+
+    // 未开启跟踪时为 -1
+    public int getTrackId(int index) {
+        return trackIds[index];
+    }
+
+    public String getName(int index, List<String> labels) {
+        int classId = classIds[index];
+        if (labels == null || classId < 0 || classId >= labels.size()) return null;
+        return labels.get(classId);
+    }
+
+    public YoloResult getResult(int index, List<String> labels) {
+        return new YoloResult(getArea(index), getName(index, labels), getSimilar(index));
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "YoloResultSet{" +
+                "size=" + size() +
+                '}';
+    }
+
+    @Override
+    public void writeToParcel(@NonNull Parcel dest, int flags) {
+        int start = dest.dataPosition();
+        dest.writeInt(0);
+
+        dest.writeFloatArray(boxes);
+        dest.writeIntArray(classIds);
+        dest.writeFloatArray(scores);
+        dest.writeIntArray(trackIds);
+
+        int end = dest.dataPosition();
+        dest.setDataPosition(start);
+        dest.writeInt(end - start);
+        dest.setDataPosition(end);
+    }
+}
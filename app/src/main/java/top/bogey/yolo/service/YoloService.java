@@ -2,238 +2,385 @@ package top.bogey.yolo.service;
 
 import android.app.Service;
 import android.content.Intent;
+import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
-import android.graphics.RectF;
+import android.os.Binder;
+import android.os.Bundle;
 import android.os.IBinder;
+import android.os.Parcel;
+import android.os.Process;
 import android.os.RemoteException;
+import android.os.SharedMemory;
+import android.system.ErrnoException;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.google.ai.edge.litert.Accelerator;
 import com.google.ai.edge.litert.CompiledModel;
 import com.google.ai.edge.litert.Environment;
 import com.google.ai.edge.litert.LiteRtException;
-import com.google.ai.edge.litert.TensorBuffer;
-
-import org.tensorflow.lite.support.common.ops.NormalizeOp;
-import org.tensorflow.lite.support.image.ImageProcessor;
-import org.tensorflow.lite.support.image.TensorImage;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Iterator;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import top.bogey.yolo.IYolo;
+import top.bogey.yolo.IYoloAsyncCallback;
+import top.bogey.yolo.IYoloBatchCallback;
 import top.bogey.yolo.IYoloCallback;
+import top.bogey.yolo.IYoloFlatCallback;
+import top.bogey.yolo.IYoloSession;
 import top.bogey.yolo.bean.ModelInfo;
 import top.bogey.yolo.bean.YoloManager;
+import top.bogey.yolo.core.Detections;
+import top.bogey.yolo.core.PixelSource;
+import top.bogey.yolo.core.StripeExecutor;
+import top.bogey.yolo.core.TfliteReader;
 
 public class YoloService extends Service {
+    private static final String TAG = "YoloService";
+    // 影响所有调用方的设置需要此签名权限
+    public static final String PERMISSION_CONFIGURE = "top.bogey.yolo.permission.CONFIGURE";
+
     private Environment gpuEnvironment;
-    private final Map<String, CompiledModel> modelCache = new HashMap<>();
+    private final YoloManager yoloManager = YoloManager.getInstance();
+    private final ModelCache modelCache = new ModelCache();
+    private final ExecutorService preprocessExecutor = Executors.newSingleThreadExecutor();
+    // 测速不占用推理线程，同一模型同时只测一次
+    private final ExecutorService benchmarkExecutor = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "yolo-benchmark"));
+    private final Set<String> benchmarking = ConcurrentHashMap.newKeySet();
+    // 大图按行分条预处理，线程数与大核数一致，调用线程也处理一条
+    private final int stripeThreads = getBigCoreCount();
+    private final ExecutorService stripePool = Executors.newFixedThreadPool(Math.max(1, stripeThreads - 1));
+    private final StripeExecutor stripeExecutor = new StripeExecutor(stripePool, stripeThreads);
+    private final Map<Integer, FrameBuffer> frameBuffers = new ConcurrentHashMap<>();
+    private final AtomicInteger frameBufferId = new AtomicInteger();
+    private final Set<Session> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger lastSessionId = new AtomicInteger();
+    private final FrameCache frameCache = new FrameCache();
+    private final ObjectTracker objectTracker = new ObjectTracker();
+    private final Map<String, ModelStats> modelStats = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> transactStart = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final InferenceScheduler scheduler = new InferenceScheduler(new InferenceScheduler.ModelLoader() {
+        @Override
+        public YoloModel acquire(ModelInfo modelInfo) {
+            YoloModel model = modelCache.acquire(modelInfo.getId());
+            if (model != null) {
+                if (model.getModelInfo().getAccelerator() == modelInfo.getAccelerator()) return model;
+                // 重新测速后加速方式已改变，淘汰旧模型，正在使用的旧模型在释放后关闭
+                model.release();
+                modelCache.remove(modelInfo.getId());
+            }
+
+            // 设备或运行时更新后在后台重新测速，本次仍按保存的加速方式创建
+            if (!modelInfo.isBenchmarkValid(YoloManager.getBenchmarkFingerprint())) scheduleBenchmark(modelInfo);
+
+            String modelPath = yoloManager.getModelPath(YoloService.this, modelInfo);
+            long bytes = new File(modelPath).length();
+            modelCache.reserve(bytes);
+            try {
+                model = createModel(modelInfo, modelPath);
+            } catch (LiteRtException e) {
+                // 可能是显存不足，释放其它模型后重试一次
+                modelCache.evictAll();
+                try {
+                    model = createModel(modelInfo, modelPath);
+                } catch (LiteRtException ignored) {
+                    return null;
+                }
+            }
+            if (model == null) return null;
+            model.acquire();
+            modelCache.put(modelInfo.getId(), model, bytes);
+            return model;
+        }
+
+        @Override
+        public void evict(ModelInfo modelInfo) {
+            modelCache.remove(modelInfo.getId());
+        }
+    });
+
+    private final AsyncDispatcher dispatcher = new AsyncDispatcher(scheduler);
 
     private final IYolo.Stub stub = new IYolo.Stub() {
-        private static final float IOU_THRESHOLD = 0.5f;
-        private final YoloManager yoloManager = YoloManager.getInstance();
 
         @Override
         public void runYolo(Bitmap bitmap, String modelName, float similarity, IYoloCallback callback) throws RemoteException {
-            ModelInfo modelInfo = yoloManager.findModel(modelName);
-            if (bitmap == null || modelInfo == null) {
+            if (bitmap == null) {
                 callback.onResult(new ArrayList<>());
                 return;
             }
+            runYolo(new BitmapSource(bitmap), modelName, similarity, callback);
+        }
 
-            CompiledModel model = getModel(modelInfo);
-            if (model == null) {
+        @Override
+        public void runYoloWithOptions(Bitmap bitmap, String modelName, YoloOptions options, IYoloCallback callback) throws RemoteException {
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (bitmap == null || modelInfo == null) {
                 callback.onResult(new ArrayList<>());
                 return;
             }
-            Log.d("TAG", "runYolo: " + modelName);
-
-            // 处理图片
-            int imageSize = modelInfo.getImageSize();
-            LetterBox letterBox = LetterBox.create(bitmap, imageSize, imageSize);
-            TensorImage tensorImage = TensorImage.fromBitmap(letterBox.bitmap());
-            ImageProcessor processor = new ImageProcessor.Builder().add(new NormalizeOp(0.0f, 255.0f)).build();
-            tensorImage = processor.process(tensorImage);
-            float[] floatArray = tensorImage.getTensorBuffer().getFloatArray();
-
-            // 运行模型
-            float[] resultFloatArray = null;
-            List<TensorBuffer> inputs = null;
-            List<TensorBuffer> outputs = null;
+
+            ModelStats modelStats = startRequest(modelInfo);
+            long start = System.nanoTime();
+            // 列表结果不带跟踪编号，不接受跟踪
+            YoloOptions yoloOptions = options == null ? new YoloOptions() : options.isTracking() ? options.copy().setTracking(false) : options;
+            BitmapSource source = new BitmapSource(bitmap);
+            int clientId = Binder.getCallingUid();
+            List<YoloResult> results = scheduler.execute(modelInfo, model -> model.toResults(detect(clientId, 0, model, source, yoloOptions)));
+
+            long callbackStart = modelStats.begin(ModelStats.Stage.CALLBACK);
             try {
-                inputs = model.createInputBuffers();
-                outputs = model.createOutputBuffers();
-                inputs.get(0).writeFloat(floatArray);
-                model.run(inputs, outputs);
-                resultFloatArray = outputs.get(0).readFloat();
-            } catch (LiteRtException e) {
-                e.printStackTrace();
-                CompiledModel remove = modelCache.remove(modelInfo.getId());
-                if (remove != null) remove.close();
+                callback.onResult(results == null ? new ArrayList<>() : results);
             } finally {
-                if (inputs != null) inputs.forEach(TensorBuffer::close);
-                if (outputs != null) outputs.forEach(TensorBuffer::close);
+                modelStats.end(ModelStats.Stage.CALLBACK, callbackStart);
+                modelStats.record(ModelStats.Stage.TOTAL, System.nanoTime() - start);
             }
+        }
 
-            // 解析结果
-            List<YoloResult> results = switch (modelInfo.getVersion()) {
-                case V8, V11 -> parseOutput(resultFloatArray, modelInfo, similarity);
-                case V10 -> parseOutputV10(resultFloatArray, modelInfo, similarity);
-                default -> null;
-            };
-
-            if (results == null) {
-                callback.onResult(new ArrayList<>());
+        @Override
+        public void runYoloFlatWithOptions(Bitmap bitmap, String modelName, YoloOptions options, IYoloFlatCallback callback) throws RemoteException {
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (bitmap == null || modelInfo == null) {
+                callback.onResult(new YoloResultSet());
                 return;
             }
 
-            Log.d("TAG", "runYolo: " + results);
-
-            // 还原坐标
-            for (YoloResult result : results) {
-                RectF rect = result.getArea();
-                float offsetX = letterBox.offsetX();
-                float offsetY = letterBox.offsetY();
-                float scale = letterBox.scale();
+            ModelStats modelStats = startRequest(modelInfo);
+            long start = System.nanoTime();
+            YoloOptions yoloOptions = options == null ? new YoloOptions() : options;
+            BitmapSource source = new BitmapSource(bitmap);
+            int clientId = Binder.getCallingUid();
+            YoloResultSet resultSet = scheduler.execute(modelInfo, model -> new YoloResultSet(detect(clientId, 0, model, source, yoloOptions)));
 
-                float left = (rect.left * imageSize - offsetX) / scale;
-                float top = (rect.top * imageSize - offsetY) / scale;
-                float right = (rect.right * imageSize - offsetX) / scale;
-                float bottom = (rect.bottom * imageSize - offsetY) / scale;
-                rect.set(left, top, right, bottom);
+            long callbackStart = modelStats.begin(ModelStats.Stage.CALLBACK);
+            try {
+                callback.onResult(resultSet == null ? new YoloResultSet() : resultSet);
+            } finally {
+                modelStats.end(ModelStats.Stage.CALLBACK, callbackStart);
+                modelStats.record(ModelStats.Stage.TOTAL, System.nanoTime() - start);
             }
+        }
 
-            Log.d("TAG", "runYolo: " + results);
-            Log.d("TAG", "runYolo: " + results.size());
-            callback.onResult(results);
+        @Override
+        public int registerFrameBuffer(SharedMemory memory, int slotSize) {
+            return YoloService.this.registerFrameBuffer(memory, slotSize, null);
         }
 
-        private CompiledModel getModel(ModelInfo modelInfo) {
-            String modelPath = yoloManager.getModelPath(YoloService.this, modelInfo.getId());
-            CompiledModel model = modelCache.get(modelInfo.getId());
-            if (model != null) return model;
+        @Override
+        public int registerFrameBufferWithClient(SharedMemory memory, int slotSize, IBinder client) {
+            return YoloService.this.registerFrameBuffer(memory, slotSize, client);
+        }
+
+        @Override
+        public void unregisterFrameBuffer(int bufferId) {
+            FrameBuffer frameBuffer = frameBuffers.get(bufferId);
+            if (frameBuffer == null || frameBuffer.getOwner() != Binder.getCallingUid()) return;
+            removeFrameBuffer(bufferId, frameBuffer);
+        }
+
+        @Override
+        public void runYoloFrame(int bufferId, int slot, int width, int height, int stride, int format, String modelName, float similarity, IYoloCallback callback) throws RemoteException {
+            FrameBuffer frameBuffer = acquireFrameBuffer(bufferId);
+            if (frameBuffer == null) {
+                callback.onResult(new ArrayList<>());
+                return;
+            }
+
             try {
-                switch (modelInfo.getAccelerator()) {
-                    case GPU -> {
-                        if (gpuEnvironment == null) gpuEnvironment = Environment.create();
-                        model = CompiledModel.create(modelPath, new CompiledModel.Options(Accelerator.GPU), gpuEnvironment);
-                    }
-                    case CPU -> model = CompiledModel.create(modelPath, new CompiledModel.Options(Accelerator.CPU));
+                PixelSource source = frameBuffer.getSlot(slot, width, height, stride, format);
+                if (source == null) {
+                    callback.onResult(new ArrayList<>());
+                    return;
                 }
-                modelCache.put(modelInfo.getId(), model);
-            } catch (LiteRtException ignored) {
-                modelCache.forEach((key, value) -> value.close());
+                runYolo(source, modelName, similarity, callback);
+            } finally {
+                frameBuffer.release();
             }
-            return model;
         }
 
-        private List<YoloResult> parseOutput(float[] output, ModelInfo modelInfo, float confThreshold) {
-            List<String> labels = modelInfo.getLabels();
-            int classesNum = labels.size();
-            int boxCount = modelInfo.getBoxCount();
+        private void runYolo(PixelSource source, String modelName, float similarity, IYoloCallback callback) throws RemoteException {
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (modelInfo == null) {
+                callback.onResult(new ArrayList<>());
+                return;
+            }
+            ModelStats modelStats = startRequest(modelInfo);
+            long start = System.nanoTime();
+
+            List<YoloResult> results = scheduler.execute(modelInfo, model -> model.toResults(model.detect(source, similarity)));
+            if (isDebug()) Log.d(TAG, "runYolo: " + modelName + ", " + (results == null ? -1 : results.size()));
 
-            List<YoloResult> results = new ArrayList<>();
-            for (int i = 0; i < boxCount; i++) {
-                float maxScore = -1f;
-                int classId = -1;
+            long callbackStart = modelStats.begin(ModelStats.Stage.CALLBACK);
+            try {
+                callback.onResult(results == null ? new ArrayList<>() : results);
+            } finally {
+                modelStats.end(ModelStats.Stage.CALLBACK, callbackStart);
+                modelStats.record(ModelStats.Stage.TOTAL, System.nanoTime() - start);
+            }
+        }
 
-                for (int j = 0; j < classesNum; j++) {
-                    float score = output[(4 + j) * boxCount + i];
-                    if (score > maxScore) {
-                        maxScore = score;
-                        classId = j;
-                    }
+        @Override
+        public void runYoloBatch(List<Bitmap> bitmaps, String modelName, float similarity, IYoloBatchCallback callback) throws RemoteException {
+            List<YoloBatchResult> batchResults = new ArrayList<>();
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (bitmaps == null || bitmaps.isEmpty() || modelInfo == null) {
+                callback.onResult(batchResults);
+                return;
+            }
+            ModelStats modelStats = startRequest(modelInfo);
+            long start = System.nanoTime();
+            if (isDebug()) Log.d(TAG, "runYoloBatch: " + modelName + ", " + bitmaps.size());
+
+            List<List<YoloResult>> results = scheduler.execute(modelInfo, model -> model.detect(bitmaps, similarity));
+            if (results != null) {
+                for (int i = 0; i < results.size(); i++) {
+                    batchResults.add(new YoloBatchResult(i, results.get(i)));
                 }
+            }
 
-                if (maxScore < confThreshold) continue;
+            long callbackStart = modelStats.begin(ModelStats.Stage.CALLBACK);
+            try {
+                callback.onResult(batchResults);
+            } finally {
+                modelStats.end(ModelStats.Stage.CALLBACK, callbackStart);
+                modelStats.record(ModelStats.Stage.TOTAL, System.nanoTime() - start);
+            }
+        }
 
-                String label = labels.get(classId);
+        @Override
+        public void runYoloFlat(Bitmap bitmap, String modelName, float similarity, IYoloFlatCallback callback) throws RemoteException {
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (bitmap == null || modelInfo == null) {
+                callback.onResult(new YoloResultSet());
+                return;
+            }
 
-                float cx = output[i];
-                float cy = output[boxCount + i];
-                float w = output[2 * boxCount + i];
-                float h = output[3 * boxCount + i];
+            ModelStats modelStats = startRequest(modelInfo);
+            long start = System.nanoTime();
+            BitmapSource source = new BitmapSource(bitmap);
+            YoloResultSet resultSet = scheduler.execute(modelInfo, model -> new YoloResultSet(model.detect(source, similarity)));
 
-                float left = cx - w / 2;
-                float top = cy - h / 2;
-                float right = cx + w / 2;
-                float bottom = cy + h / 2;
+            long callbackStart = modelStats.begin(ModelStats.Stage.CALLBACK);
+            try {
+                callback.onResult(resultSet == null ? new YoloResultSet() : resultSet);
+            } finally {
+                modelStats.end(ModelStats.Stage.CALLBACK, callbackStart);
+                modelStats.record(ModelStats.Stage.TOTAL, System.nanoTime() - start);
+            }
+        }
 
-                YoloResult result = new YoloResult(new RectF(left, top, right, bottom), label, maxScore);
-                results.add(result);
+        @Override
+        public boolean onTransact(int code, @NonNull Parcel data, @Nullable Parcel reply, int flags) throws RemoteException {
+            transactStart.get()[0] = System.nanoTime();
+            try {
+                return super.onTransact(code, data, reply, flags);
+            } finally {
+                transactStart.get()[0] = 0;
             }
-            return nonMaxSuppression(results);
         }
 
-        private List<YoloResult> parseOutputV10(float[] output, ModelInfo modelInfo, float confThreshold) {
-            List<String> labels = modelInfo.getLabels();
-            int channelNum = 6;
-            int boxCount = 300;
+        @Override
+        public void submitYolo(long requestId, Bitmap bitmap, String modelName, float similarity, boolean coalesce, IYoloAsyncCallback callback) throws RemoteException {
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (bitmap == null || modelInfo == null) {
+                callback.onResult(requestId, new ArrayList<>());
+                return;
+            }
+            dispatcher.submit(Binder.getCallingUid(), requestId, modelInfo, new BitmapSource(bitmap), similarity, coalesce, callback);
+        }
 
-            List<YoloResult> results = new ArrayList<>();
-            for (int i = 0; i < boxCount; i++) {
-                float score = output[i * channelNum + 4];
-                if (score < confThreshold) continue;
+        @Override
+        public void cancelYolo(long requestId) {
+            dispatcher.cancel(Binder.getCallingUid(), requestId);
+        }
 
-                float left = output[i * channelNum];
-                float top = output[i * channelNum + 1];
-                float right = output[i * channelNum + 2];
-                float bottom = output[i * channelNum + 3];
-                int classId = (int) output[i * channelNum + 5];
-                String label = labels.get(classId);
+        @Override
+        public boolean preloadModel(String modelName, boolean pin) {
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (modelInfo == null) return false;
+            // 未授权的调用方只能预热，不能改变常驻状态
+            boolean trusted = isTrusted();
+            if (pin && !trusted) return false;
+            if (trusted) modelCache.setPinned(modelInfo.getId(), pin);
+
+            Boolean result = scheduler.execute(modelInfo, model -> {
+                model.warmUp();
+                return true;
+            });
+            return result != null;
+        }
 
-                YoloResult result = new YoloResult(new RectF(left, top, right, bottom), label, score);
-                results.add(result);
-            }
-            return results;
-        }
-
-        private List<YoloResult> nonMaxSuppression(List<YoloResult> list) {
-            List<YoloResult> results = new ArrayList<>();
-            list.sort((a, b) -> Float.compare(b.getSimilar(), a.getSimilar()));
-
-            while (!list.isEmpty()) {
-                YoloResult current = list.remove(0);
-                results.add(current);
-
-                Iterator<YoloResult> iterator = list.iterator();
-                while (iterator.hasNext()) {
-                    YoloResult other = iterator.next();
-                    if (other.getName().equals(current.getName())) {
-                        float iou = intersectionOverUnion(current, other);
-                        if (iou > IOU_THRESHOLD) {
-                            iterator.remove();
-                        }
-                    }
-                }
-            }
+        @Override
+        public void setModelCacheBudget(int maxCount, long maxBytes) {
+            if (!isTrusted()) return;
+            modelCache.setBudget(maxCount, maxBytes);
+        }
+
+        @Override
+        public void setMaxInFlight(int maxInFlight) {
+            if (!isTrusted()) return;
+            scheduler.setMaxInFlight(maxInFlight);
+        }
+
+        @Override
+        public void setPreprocessThreshold(int minPixels) {
+            if (!isTrusted()) return;
+            stripeExecutor.setMinPixels(minPixels);
+        }
 
-            return results;
+        @Override
+        public Bundle getStats() {
+            Bundle models = new Bundle();
+            modelStats.forEach((name, stats) -> models.putBundle(name, stats.toBundle()));
+
+            Bundle bundle = new Bundle();
+            bundle.putBundle("models", models);
+            bundle.putBundle("modelCache", modelCache.getStats());
+            bundle.putBundle("scheduler", scheduler.getStats());
+            bundle.putBundle("frameCache", frameCache.getStats(false));
+            return bundle;
         }
 
-        private float intersectionOverUnion(YoloResult a, YoloResult b) {
-            RectF aRect = a.getArea();
-            RectF bRect = b.getArea();
-            float left = Math.max(aRect.left, bRect.left);
-            float top = Math.max(aRect.top, bRect.top);
-            float right = Math.min(aRect.right, bRect.right);
-            float bottom = Math.min(aRect.bottom, bRect.bottom);
+        @Override
+        public Bundle getFrameCacheStats(boolean reset) {
+            return frameCache.getStats(reset && isTrusted());
+        }
 
-            float width = Math.max(right - left, 0);
-            float height = Math.max(bottom - top, 0);
-            float intersectionArea = width * height;
+        @Override
+        public IYoloSession openSession(String modelName, YoloOptions options, IBinder client) {
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (modelInfo == null) return null;
+
+            // 在模型队列中加载并额外占用一次，会话关闭前模型即使被缓存淘汰也不会释放
+            YoloModel model = scheduler.execute(modelInfo, loaded -> loaded.acquire() ? loaded : null);
+            if (model == null) return null;
+            Session session = new Session(modelInfo, model, options == null ? new YoloOptions() : options.copy(), Binder.getCallingUid(), client);
+            sessions.add(session);
+            return session.link() ? session : null;
+        }
 
-            float aArea = aRect.width() * aRect.height();
-            float bArea = bRect.width() * bRect.height();
-            float unionArea = aArea + bArea - intersectionArea;
-            if (unionArea > 0) return intersectionArea / unionArea;
-            return 0;
+        @Override
+        public List<String> getModelLabels(String modelName) {
+            ModelInfo modelInfo = yoloManager.findModel(modelName);
+            if (modelInfo == null) return new ArrayList<>();
+            return new ArrayList<>(modelInfo.getLabels());
         }
 
         @Override
@@ -246,6 +393,123 @@ public class YoloService extends Service {
         }
     };
 
+    // 开启跟踪时由跟踪器决定完整识别还是只做预测
+    private Detections detect(int clientId, int sessionId, YoloModel model, PixelSource source, YoloOptions options) throws LiteRtException {
+        if (!options.isTracking()) return detectFrame(clientId, sessionId, model, source, options);
+        return objectTracker.detect(clientId, sessionId, model.getModelInfo().getId(), source, options, trackOptions -> detectFrame(clientId, sessionId, model, source, trackOptions));
+    }
+
+    private Detections detectFrame(int clientId, int sessionId, YoloModel model, PixelSource source, YoloOptions options) throws LiteRtException {
+        // 指定区域时不复用上一帧
+        if (options.getFrameTolerance() < 0 || !options.getRegions().isEmpty()) return model.detect(source, options);
+        return frameCache.detect(clientId, sessionId, model, source, options);
+    }
+
+    // client 不为空时在注册方进程退出后自动注销
+    private int registerFrameBuffer(SharedMemory memory, int slotSize, IBinder client) {
+        if (memory == null || slotSize <= 0) return -1;
+        FrameBuffer frameBuffer;
+        try {
+            frameBuffer = new FrameBuffer(memory, slotSize, Binder.getCallingUid());
+        } catch (ErrnoException e) {
+            e.printStackTrace();
+            memory.close();
+            return -1;
+        }
+
+        int id = frameBufferId.incrementAndGet();
+        frameBuffers.put(id, frameBuffer);
+        if (client != null && !frameBuffer.linkToDeath(client, () -> removeFrameBuffer(id, frameBuffer))) {
+            removeFrameBuffer(id, frameBuffer);
+            return -1;
+        }
+        return id;
+    }
+
+    private void removeFrameBuffer(int id, FrameBuffer frameBuffer) {
+        if (frameBuffers.remove(id, frameBuffer)) frameBuffer.close();
+    }
+
+    // 本应用或持有签名权限的调用方
+    private boolean isTrusted() {
+        if (Binder.getCallingUid() == Process.myUid()) return true;
+        return checkCallingPermission(PERMISSION_CONFIGURE) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    // 只有注册方可以读取帧环，成功时已 acquire
+    private FrameBuffer acquireFrameBuffer(int id) {
+        FrameBuffer frameBuffer = frameBuffers.get(id);
+        if (frameBuffer == null || frameBuffer.getOwner() != Binder.getCallingUid()) return null;
+        return frameBuffer.acquire() ? frameBuffer : null;
+    }
+
+    // 记录从收到事务到进入方法的反序列化耗时，进程内直接调用时不记录
+    private ModelStats startRequest(ModelInfo modelInfo) {
+        ModelStats modelStats = getModelStats(modelInfo);
+        long[] start = transactStart.get();
+        if (start[0] != 0) {
+            modelStats.record(ModelStats.Stage.UNMARSHAL, System.nanoTime() - start[0]);
+            start[0] = 0;
+        }
+        return modelStats;
+    }
+
+    // 结果在模型仍存在时保存，之后的请求发现加速方式改变时切换
+    private void scheduleBenchmark(ModelInfo modelInfo) {
+        if (!benchmarking.add(modelInfo.getId())) return;
+        benchmarkExecutor.execute(() -> {
+            try {
+                yoloManager.benchmarkModel(this, modelInfo);
+            } finally {
+                benchmarking.remove(modelInfo.getId());
+            }
+        });
+    }
+
+    // 按路径创建时由运行时直接映射模型文件，不经过 Java 堆
+    private YoloModel createModel(ModelInfo modelInfo, String modelPath) throws LiteRtException {
+        CompiledModel compiledModel = switch (modelInfo.getAccelerator()) {
+            case GPU -> CompiledModel.create(modelPath, new CompiledModel.Options(Accelerator.GPU), getGpuEnvironment());
+            // 尚未测速的模型先使用 CPU，与调度队列一致
+            default -> CompiledModel.create(modelPath, new CompiledModel.Options(Accelerator.CPU));
+        };
+        return new YoloModel(modelInfo, compiledModel, TfliteReader.read(modelPath), getModelStats(modelInfo), preprocessExecutor, stripeExecutor);
+    }
+
+    // 按各核最高频率区分大小核，读取失败或频率一致时视为全部是大核
+    private static int getBigCoreCount() {
+        int count = Runtime.getRuntime().availableProcessors();
+        long[] frequencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                byte[] bytes = Files.readAllBytes(Paths.get("/sys/devices/system/cpu/cpu" + i + "/cpufreq/cpuinfo_max_freq"));
+                frequencies[i] = Long.parseLong(new String(bytes).trim());
+            } catch (IOException | NumberFormatException e) {
+                return count;
+            }
+        }
+
+        long min = Arrays.stream(frequencies).min().orElse(0);
+        int big = 0;
+        for (long frequency : frequencies) {
+            if (frequency > min) big++;
+        }
+        return big == 0 ? count : big;
+    }
+
+    private ModelStats getModelStats(ModelInfo modelInfo) {
+        return modelStats.computeIfAbsent(modelInfo.getName(), name -> new ModelStats());
+    }
+
+    // 调试日志默认关闭，通过 adb shell setprop log.tag.YoloService DEBUG 开启
+    private static boolean isDebug() {
+        return Log.isLoggable(TAG, Log.DEBUG);
+    }
+
+    private synchronized Environment getGpuEnvironment() throws LiteRtException {
+        if (gpuEnvironment == null) gpuEnvironment = Environment.create();
+        return gpuEnvironment;
+    }
 
     @Nullable
     @Override
@@ -256,7 +520,127 @@ public class YoloService extends Service {
     @Override
     public void onDestroy() {
         super.onDestroy();
-        modelCache.forEach((id, model) -> model.close());
+        // 会话的释放排在模型队列中，需在关闭调度器前完成提交
+        sessions.forEach(Session::close);
+        scheduler.shutdown();
         modelCache.clear();
+        frameCache.clear();
+        objectTracker.clear();
+        preprocessExecutor.shutdown();
+        benchmarkExecutor.shutdown();
+        stripePool.shutdown();
+        frameBuffers.forEach((id, frameBuffer) -> frameBuffer.close());
+        frameBuffers.clear();
+    }
+
+    // 打开时确定模型与参数并占用模型，每帧只剩传输与计算
+    private class Session extends IYoloSession.Stub implements IBinder.DeathRecipient {
+        private final ModelInfo modelInfo;
+        private final YoloModel model;
+        private final YoloOptions options;
+        // 列表结果不带跟踪编号，detect 与 detectFrame 不做跟踪
+        private final YoloOptions listOptions;
+        private final int clientId;
+        private final IBinder client;
+        // 跟踪与帧缓存按会话区分，不与同一调用方的其它会话及请求共享
+        private final int sessionId = lastSessionId.incrementAndGet();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Session(ModelInfo modelInfo, YoloModel model, YoloOptions options, int clientId, IBinder client) {
+            this.modelInfo = modelInfo;
+            this.model = model;
+            this.options = options;
+            listOptions = options.isTracking() ? options.copy().setTracking(false) : options;
+            this.clientId = clientId;
+            this.client = client;
+        }
+
+        // 调用方已退出时关闭会话并返回 false
+        private boolean link() {
+            if (client == null) return true;
+            try {
+                client.linkToDeath(this, 0);
+                return true;
+            } catch (RemoteException e) {
+                close();
+                return false;
+            }
+        }
+
+        @Override
+        public List<YoloResult> detect(Bitmap bitmap) {
+            if (bitmap == null) return new ArrayList<>();
+            List<YoloResult> results = detect(new BitmapSource(bitmap), listOptions, model::toResults);
+            return results == null ? new ArrayList<>() : results;
+        }
+
+        @Override
+        public List<YoloResult> detectFrame(int bufferId, int slot, int width, int height, int stride, int format) {
+            List<YoloResult> results = detectSlot(bufferId, slot, width, height, stride, format, listOptions, model::toResults);
+            return results == null ? new ArrayList<>() : results;
+        }
+
+        @Override
+        public YoloResultSet detectFlat(Bitmap bitmap) {
+            if (bitmap == null) return new YoloResultSet();
+            YoloResultSet resultSet = detect(new BitmapSource(bitmap), options, YoloResultSet::new);
+            return resultSet == null ? new YoloResultSet() : resultSet;
+        }
+
+        @Override
+        public YoloResultSet detectFrameFlat(int bufferId, int slot, int width, int height, int stride, int format) {
+            YoloResultSet resultSet = detectSlot(bufferId, slot, width, height, stride, format, options, YoloResultSet::new);
+            return resultSet == null ? new YoloResultSet() : resultSet;
+        }
+
+        private <T> T detectSlot(int bufferId, int slot, int width, int height, int stride, int format, YoloOptions options, Function<Detections, T> convert) {
+            FrameBuffer frameBuffer = acquireFrameBuffer(bufferId);
+            if (frameBuffer == null) return null;
+
+            try {
+                PixelSource source = frameBuffer.getSlot(slot, width, height, stride, format);
+                if (source == null) return null;
+                return detect(source, options, convert);
+            } finally {
+                frameBuffer.release();
+            }
+        }
+
+        // 模型复用结果对象，需在队列中完成转换
+        private <T> T detect(PixelSource source, YoloOptions options, Function<Detections, T> convert) {
+            if (closed.get()) return null;
+            ModelStats modelStats = startRequest(modelInfo);
+            long start = System.nanoTime();
+
+            // 关闭时的释放排在队列中已提交的识别之后，执行时再检查一次
+            T result = scheduler.execute(modelInfo, model, pinned -> closed.get() ? null : convert.apply(YoloService.this.detect(clientId, sessionId, pinned, source, options)));
+            modelStats.record(ModelStats.Stage.TOTAL, System.nanoTime() - start);
+            return result;
+        }
+
+        @Override
+        public void close() {
+            if (!closed.compareAndSet(false, true)) return;
+            if (client != null) client.unlinkToDeath(this, 0);
+            sessions.remove(this);
+            frameCache.removeSession(sessionId);
+            objectTracker.removeSession(sessionId);
+            scheduler.release(modelInfo, model);
+        }
+
+        @Override
+        public void binderDied() {
+            close();
+        }
+
+        @Override
+        public boolean onTransact(int code, @NonNull Parcel data, @Nullable Parcel reply, int flags) throws RemoteException {
+            transactStart.get()[0] = System.nanoTime();
+            try {
+                return super.onTransact(code, data, reply, flags);
+            } finally {
+                transactStart.get()[0] = 0;
+            }
+        }
     }
-}
+}
\ No newline at end of file
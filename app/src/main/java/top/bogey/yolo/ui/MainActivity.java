@@ -11,11 +11,18 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 
+import com.google.android.material.dialog.MaterialAlertDialogBuilder;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
 import top.bogey.yolo.R;
+import top.bogey.yolo.bean.ModelImporter;
 import top.bogey.yolo.bean.YoloManager;
 import top.bogey.yolo.databinding.ActivityMainBinding;
+import top.bogey.yolo.databinding.ImportProgressDialogBinding;
 import top.bogey.yolo.service.YoloService;
 
 public class MainActivity extends AppCompatActivity {
@@ -40,14 +47,37 @@ public class MainActivity extends AppCompatActivity {
 
         binding.addButton.setOnClickListener(v -> launcherOpenDocument((code, intent) -> {
             if (code == RESULT_OK) {
-                Toast.makeText(this, R.string.importing, Toast.LENGTH_SHORT).show();
+                Handler handler = new Handler(Looper.getMainLooper());
+                ImportProgressDialogBinding progressBinding = ImportProgressDialogBinding.inflate(getLayoutInflater());
+                AtomicInteger lastPercent = new AtomicInteger(-1);
+                ModelImporter importer = new ModelImporter(intent.getData(), (read, total) -> {
+                    if (total <= 0) return;
+                    // 百分比变化时才刷新界面
+                    int percent = (int) Math.min(100, read * 100 / total);
+                    if (lastPercent.getAndSet(percent) == percent) return;
+                    handler.post(() -> {
+                        progressBinding.progress.setIndeterminate(false);
+                        progressBinding.progress.setProgressCompat(percent, true);
+                        progressBinding.percent.setText(getString(R.string.import_progress, percent));
+                    });
+                });
+
+                AlertDialog dialog = new MaterialAlertDialogBuilder(this)
+                        .setTitle(R.string.importing)
+                        .setView(progressBinding.getRoot())
+                        .setCancelable(false)
+                        .setNegativeButton(R.string.import_cancel, (d, which) -> importer.cancel())
+                        .show();
 
                 new Thread(() -> {
-                    boolean success = yoloManager.importModel(this, intent.getData());
-                    new Handler(Looper.getMainLooper()).post(() -> {
+                    boolean success = yoloManager.importModel(this, importer);
+                    handler.post(() -> {
+                        dialog.dismiss();
                         if (success) {
                             Toast.makeText(this, R.string.import_success, Toast.LENGTH_SHORT).show();
                             adapter.refresh();
+                        } else if (importer.isCancelled()) {
+                            Toast.makeText(this, R.string.import_cancelled, Toast.LENGTH_SHORT).show();
                         } else {
                             Toast.makeText(this, R.string.import_failed, Toast.LENGTH_SHORT).show();
                         }
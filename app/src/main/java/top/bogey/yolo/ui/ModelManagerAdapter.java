@@ -77,6 +77,27 @@ public class ModelManagerAdapter extends RecyclerView.Adapter<ModelManagerAdapte
                 }
             });
 
+            // 长按重新测试加速方式
+            binding.getRoot().setOnLongClickListener(v -> {
+                ModelInfo info = modelInfo;
+                Toast.makeText(context, R.string.benchmarking, Toast.LENGTH_SHORT).show();
+                new Thread(() -> {
+                    ModelInfo result = yoloManager.benchmarkModel(context, info);
+                    // 测速期间已被删除
+                    if (result == null) return;
+                    handler.post(() -> {
+                        String gpu = formatLatency(context, result.getGpuLatency());
+                        String cpu = formatLatency(context, result.getCpuLatency());
+                        Toast.makeText(context, context.getString(R.string.benchmark_result, gpu, cpu), Toast.LENGTH_LONG).show();
+                        int index = getBindingAdapterPosition();
+                        if (index == RecyclerView.NO_POSITION || !models.get(index).getId().equals(result.getId())) return;
+                        models.set(index, result);
+                        notifyItemChanged(index);
+                    });
+                }).start();
+                return true;
+            });
+
             binding.getRoot().setOnClickListener(v -> {
                 List<String> labels = modelInfo.getLabels();
                 String[] labelsArray = new String[labels.size()];
@@ -109,6 +130,11 @@ public class ModelManagerAdapter extends RecyclerView.Adapter<ModelManagerAdapte
             binding.version.setText(builder.toString());
         }
 
+        private static String formatLatency(Context context, float latency) {
+            if (latency < 0) return context.getString(R.string.benchmark_unavailable);
+            return context.getString(R.string.benchmark_latency, latency);
+        }
+
         public static String formatDate(Context context, long time, boolean ignoreYear) {
             Calendar current = Calendar.getInstance();
             current.setTimeInMillis(time);
@@ -29,4 +29,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "Yolo"
 include(":app")
+include(":yolo-core")
  
\ No newline at end of file
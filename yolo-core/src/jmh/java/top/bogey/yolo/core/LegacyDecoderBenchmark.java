@@ -0,0 +1,165 @@
+package top.bogey.yolo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// 原先逐框按类别跨行读取、每个候选框创建对象并按列表做 NMS 的解析方式，作为 YoloDecoder 与 NonMaxSuppression 的基线
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LegacyDecoderBenchmark {
+    private static final float CONF_THRESHOLD = 0.25f;
+
+    @Param({"320", "640", "1280"})
+    public int imageSize;
+
+    @Param({"80", "1000"})
+    public int classes;
+
+    // 输出来源，synthetic 为模拟输出，其余为 RecordedOutput 中录制的真实输出
+    @Param({RecordedOutput.SYNTHETIC})
+    public String fixture;
+
+    private final NonMaxSuppression nonMaxSuppression = new NonMaxSuppression();
+    private final List<String> labels = new ArrayList<>();
+    private int boxCount;
+    private float[] output;
+    private YoloDecoder decoder;
+
+    @Setup
+    public void setup() {
+        boxCount = SyntheticOutput.boxCount(imageSize);
+        output = RecordedOutput.channelMajor(fixture, imageSize, classes, imageSize * 31L + classes);
+        decoder = YoloDecoder.create(false, classes, new int[]{1, 4 + classes, boxCount});
+        labels.clear();
+        for (int i = 0; i < classes; i++) {
+            labels.add("class" + i);
+        }
+    }
+
+    @Benchmark
+    public List<Result> legacyDecode() {
+        return parseOutput(output, CONF_THRESHOLD);
+    }
+
+    @Benchmark
+    public Detections decode() {
+        return decoder.decode(output, 0, null, CONF_THRESHOLD);
+    }
+
+    @Benchmark
+    public List<Result> legacyDecodeAndSuppress() {
+        return nonMaxSuppression(parseOutput(output, CONF_THRESHOLD));
+    }
+
+    @Benchmark
+    public int decodeAndSuppress() {
+        return nonMaxSuppression.run(decoder.decode(output, 0, null, CONF_THRESHOLD), NonMaxSuppression.Options.DEFAULT);
+    }
+
+    private List<Result> parseOutput(float[] output, float confThreshold) {
+        int classesNum = labels.size();
+
+        List<Result> results = new ArrayList<>();
+        for (int i = 0; i < boxCount; i++) {
+            float maxScore = -1f;
+            int classId = -1;
+
+            for (int j = 0; j < classesNum; j++) {
+                float score = output[(4 + j) * boxCount + i];
+                if (score > maxScore) {
+                    maxScore = score;
+                    classId = j;
+                }
+            }
+
+            if (maxScore < confThreshold) continue;
+
+            String label = labels.get(classId);
+
+            float cx = output[i];
+            float cy = output[boxCount + i];
+            float w = output[2 * boxCount + i];
+            float h = output[3 * boxCount + i];
+
+            results.add(new Result(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2, label, maxScore));
+        }
+        return results;
+    }
+
+    private static List<Result> nonMaxSuppression(List<Result> list) {
+        List<Result> results = new ArrayList<>();
+        list.sort((a, b) -> Float.compare(b.similar, a.similar));
+
+        while (!list.isEmpty()) {
+            Result current = list.remove(0);
+            results.add(current);
+
+            Iterator<Result> iterator = list.iterator();
+            while (iterator.hasNext()) {
+                Result other = iterator.next();
+                if (other.name.equals(current.name)) {
+                    float iou = intersectionOverUnion(current, other);
+                    if (iou > NonMaxSuppression.IOU_THRESHOLD) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+
+        return results;
+    }
+
+    private static float intersectionOverUnion(Result a, Result b) {
+        float left = Math.max(a.left, b.left);
+        float top = Math.max(a.top, b.top);
+        float right = Math.min(a.right, b.right);
+        float bottom = Math.min(a.bottom, b.bottom);
+
+        float width = Math.max(right - left, 0);
+        float height = Math.max(bottom - top, 0);
+        float intersectionArea = width * height;
+
+        float aArea = (a.right - a.left) * (a.bottom - a.top);
+        float bArea = (b.right - b.left) * (b.bottom - b.top);
+        float unionArea = aArea + bArea - intersectionArea;
+        if (unionArea > 0) return intersectionArea / unionArea;
+        return 0;
+    }
+
+    // 代替原先的 YoloResult 与 RectF，每个候选框仍是一个对象
+    public static class Result {
+        private final float left;
+        private final float top;
+        private final float right;
+        private final float bottom;
+        private final String name;
+        private final float similar;
+
+        private Result(float left, float top, float right, float bottom, String name, float similar) {
+            this.left = left;
+            this.top = top;
+            this.right = right;
+            this.bottom = bottom;
+            this.name = name;
+            this.similar = similar;
+        }
+    }
+}
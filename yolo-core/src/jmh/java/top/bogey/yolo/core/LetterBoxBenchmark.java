@@ -0,0 +1,72 @@
+package top.bogey.yolo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// 计算填充参数并把保留框还原到原图坐标，与识别后的还原步骤一致
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LetterBoxBenchmark {
+    @Param({"320", "640", "1280"})
+    public int imageSize;
+
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    public String sourceSize;
+
+    @Param({"10", "100"})
+    public int boxes;
+
+    private final Detections detections = new Detections();
+    private final Detections results = new Detections();
+    private int width;
+    private int height;
+
+    @Setup
+    public void setup() {
+        String[] size = sourceSize.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        float[] output = SyntheticOutput.channelMajor(imageSize, 1, imageSize);
+        int boxCount = SyntheticOutput.boxCount(imageSize);
+        for (int i = 0; i < boxes; i++) {
+            int index = i * (boxCount / boxes);
+            float cx = output[index];
+            float cy = output[boxCount + index];
+            float w = output[2 * boxCount + index];
+            float h = output[3 * boxCount + index];
+            detections.add(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2, 0, 1);
+        }
+    }
+
+    @Benchmark
+    public Detections restore() {
+        LetterBox letterBox = LetterBox.create(width, height, imageSize, imageSize);
+        float offsetX = letterBox.offsetX();
+        float offsetY = letterBox.offsetY();
+        float scale = letterBox.scale();
+        results.clear();
+        for (int i = 0; i < detections.size(); i++) {
+            float left = (detections.getLeft(i) * imageSize - offsetX) / scale;
+            float top = (detections.getTop(i) * imageSize - offsetY) / scale;
+            float right = (detections.getRight(i) * imageSize - offsetX) / scale;
+            float bottom = (detections.getBottom(i) * imageSize - offsetY) / scale;
+            results.add(left, top, right, bottom, detections.getClassId(i), detections.getScore(i));
+        }
+        return results;
+    }
+}
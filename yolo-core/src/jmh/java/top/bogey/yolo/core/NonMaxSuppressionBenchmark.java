@@ -0,0 +1,58 @@
+package top.bogey.yolo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// 对解析后的候选框做非极大值抑制，比较网格分桶与逐对比较
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NonMaxSuppressionBenchmark {
+    @Param({"320", "640", "1280"})
+    public int imageSize;
+
+    @Param({"1", "80", "1000"})
+    public int classes;
+
+    @Param({"true", "false"})
+    public boolean grid;
+
+    // 输出来源，synthetic 为模拟输出，其余为 RecordedOutput 中录制的真实输出
+    @Param({RecordedOutput.SYNTHETIC})
+    public String fixture;
+
+    private final NonMaxSuppression nonMaxSuppression = new NonMaxSuppression();
+    private final Detections detections = new Detections();
+    private NonMaxSuppression.Options options;
+
+    @Setup
+    public void setup() {
+        int boxCount = SyntheticOutput.boxCount(imageSize);
+        float[] output = RecordedOutput.channelMajor(fixture, imageSize, classes, imageSize * 31L + classes);
+        YoloDecoder decoder = YoloDecoder.create(false, classes, new int[]{1, 4 + classes, boxCount});
+        Detections decoded = decoder.decode(output, 0, null, 0.25f);
+        for (int i = 0; i < decoded.size(); i++) {
+            detections.add(decoded, i, 0, 0);
+        }
+        options = new NonMaxSuppression.Options(NonMaxSuppression.IOU_THRESHOLD, false, 0, grid);
+    }
+
+    @Benchmark
+    public int run() {
+        return nonMaxSuppression.run(detections, options);
+    }
+}
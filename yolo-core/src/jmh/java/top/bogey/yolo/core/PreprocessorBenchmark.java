@@ -0,0 +1,92 @@
+package top.bogey.yolo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// 缩放、填充与归一化写入模型输入，parallelism 为 1 时单线程处理
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PreprocessorBenchmark {
+    @Param({"320", "640", "1280"})
+    public int imageSize;
+
+    @Param({"1280x720", "1920x1080", "3840x2160"})
+    public String sourceSize;
+
+    @Param({"FLOAT32", "FLOAT16", "UINT8"})
+    public TensorType type;
+
+    @Param({"1", "4"})
+    public int parallelism;
+
+    private ExecutorService pool;
+    private ArraySource source;
+    private ModelInput input;
+
+    @Setup
+    public void setup() {
+        String[] size = sourceSize.split("x");
+        int width = Integer.parseInt(size[0]);
+        int height = Integer.parseInt(size[1]);
+        Random random = new Random(width * 31L + height);
+        int[] pixels = new int[width * height];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt() | 0xFF000000;
+        }
+        source = new ArraySource(pixels, width, height);
+
+        StripeExecutor stripeExecutor = null;
+        if (parallelism > 1) {
+            pool = Executors.newFixedThreadPool(parallelism - 1);
+            stripeExecutor = new StripeExecutor(pool, parallelism);
+            stripeExecutor.setMinPixels(1);
+        }
+        input = new ModelInput(imageSize, 0, type, 1 / 255f, 0, stripeExecutor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != null) pool.shutdown();
+    }
+
+    @Benchmark
+    public LetterBox process() {
+        return input.process(source, 0);
+    }
+
+    private record ArraySource(int[] pixels, int width, int height) implements PixelSource {
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public void readRow(int y, int x, int width, int[] row) {
+            System.arraycopy(pixels, y * this.width + x, row, 0, width);
+        }
+    }
+}
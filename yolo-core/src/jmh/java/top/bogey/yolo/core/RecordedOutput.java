@@ -0,0 +1,47 @@
+package top.bogey.yolo.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// 在设备上录制的真实模型输出，文件为 src/jmh/resources/outputs/<名称>.bin：
+// 小端序 int 维度数与各维大小，随后是 float 输出值，与 CompiledModel 读出的第一个输出一致
+// 运行时通过 -p fixture=<名称> 选择，imageSize 与 classes 需与录制时的模型一致
+final class RecordedOutput {
+    static final String SYNTHETIC = "synthetic";
+
+    private RecordedOutput() {
+    }
+
+    // 返回 [4 + 类别数, 框数] 布局，fixture 为 synthetic 时生成模拟输出
+    static float[] channelMajor(String fixture, int imageSize, int classes, long seed) {
+        if (SYNTHETIC.equals(fixture)) return SyntheticOutput.channelMajor(imageSize, classes, seed);
+
+        String path = "/outputs/" + fixture + ".bin";
+        ByteBuffer buffer;
+        try (InputStream stream = RecordedOutput.class.getResourceAsStream(path)) {
+            if (stream == null) throw new IllegalStateException("recorded output not found: " + path);
+            buffer = ByteBuffer.wrap(stream.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int[] shape = new int[buffer.getInt()];
+        for (int i = 0; i < shape.length; i++) {
+            shape[i] = buffer.getInt();
+        }
+        float[] values = new float[buffer.remaining() / Float.BYTES];
+        buffer.asFloatBuffer().get(values);
+
+        int channels = 4 + classes;
+        int boxCount = SyntheticOutput.boxCount(imageSize);
+        if (shape.length != 3 || shape[0] != 1 || values.length != channels * boxCount) {
+            throw new IllegalStateException(fixture + " does not match imageSize=" + imageSize + " classes=" + classes);
+        }
+        if (shape[1] == channels && shape[2] == boxCount) return values;
+        if (shape[1] == boxCount && shape[2] == channels) return SyntheticOutput.transpose(values, boxCount, channels);
+        throw new IllegalStateException(fixture + " does not match imageSize=" + imageSize + " classes=" + classes);
+    }
+}
@@ -0,0 +1,78 @@
+package top.bogey.yolo.core;
+
+import java.util.Random;
+
+// 模拟 V8/V11 的 [4 + 类别数, 框数] 输出：少量物体周围聚集高分框，其余为低分背景框，坐标为 0~1
+final class SyntheticOutput {
+    private static final int OBJECTS = 20;
+    // 落在物体附近的框所占比例
+    private static final float OBJECT_RATIO = 0.02f;
+
+    private SyntheticOutput() {
+    }
+
+    // 步长 8、16、32 三个检测头的网格数之和
+    static int boxCount(int imageSize) {
+        int total = 0;
+        for (int stride = 8; stride <= 32; stride *= 2) {
+            int size = imageSize / stride;
+            total += size * size;
+        }
+        return total;
+    }
+
+    static float[] channelMajor(int imageSize, int classes, long seed) {
+        int boxCount = boxCount(imageSize);
+        Random random = new Random(seed);
+        float[][] objects = new float[OBJECTS][];
+        int[] objectClasses = new int[OBJECTS];
+        for (int i = 0; i < OBJECTS; i++) {
+            objects[i] = new float[]{0.1f + random.nextFloat() * 0.8f, 0.1f + random.nextFloat() * 0.8f, 0.05f + random.nextFloat() * 0.2f, 0.05f + random.nextFloat() * 0.2f};
+            objectClasses[i] = random.nextInt(classes);
+        }
+
+        float[] output = new float[(4 + classes) * boxCount];
+        for (int i = 0; i < boxCount; i++) {
+            float[] box;
+            int classId;
+            float score;
+            if (random.nextFloat() < OBJECT_RATIO) {
+                int object = random.nextInt(OBJECTS);
+                box = jitter(objects[object], random);
+                classId = objectClasses[object];
+                score = 0.5f + random.nextFloat() * 0.5f;
+            } else {
+                box = new float[]{random.nextFloat(), random.nextFloat(), 0.01f + random.nextFloat() * 0.1f, 0.01f + random.nextFloat() * 0.1f};
+                classId = random.nextInt(classes);
+                score = random.nextFloat() * 0.2f;
+            }
+            for (int k = 0; k < 4; k++) {
+                output[k * boxCount + i] = box[k];
+            }
+            for (int j = 0; j < classes; j++) {
+                output[(4 + j) * boxCount + i] = random.nextFloat() * 0.05f;
+            }
+            output[(4 + classId) * boxCount + i] = score;
+        }
+        return output;
+    }
+
+    // 转为 [框数, 4 + 类别数]
+    static float[] transpose(float[] output, int channels, int boxCount) {
+        float[] transposed = new float[output.length];
+        for (int c = 0; c < channels; c++) {
+            for (int i = 0; i < boxCount; i++) {
+                transposed[i * channels + c] = output[c * boxCount + i];
+            }
+        }
+        return transposed;
+    }
+
+    private static float[] jitter(float[] box, Random random) {
+        float[] result = new float[4];
+        for (int k = 0; k < 4; k++) {
+            result[k] = box[k] + (random.nextFloat() - 0.5f) * 0.02f;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package top.bogey.yolo.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// 两种输出布局下解析全部类别与只解析一个类别的耗时
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class YoloDecoderBenchmark {
+    private static final float CONF_THRESHOLD = 0.25f;
+    private static final int[] ONE_CLASS = {0};
+
+    @Param({"320", "640", "1280"})
+    public int imageSize;
+
+    @Param({"1", "80", "1000"})
+    public int classes;
+
+    @Param({"false", "true"})
+    public boolean boxMajor;
+
+    // 输出来源，synthetic 为模拟输出，其余为 RecordedOutput 中录制的真实输出
+    @Param({RecordedOutput.SYNTHETIC})
+    public String fixture;
+
+    private YoloDecoder decoder;
+    private float[] output;
+
+    @Setup
+    public void setup() {
+        int boxCount = SyntheticOutput.boxCount(imageSize);
+        int channels = 4 + classes;
+        output = RecordedOutput.channelMajor(fixture, imageSize, classes, imageSize * 31L + classes);
+        int[] shape = {1, channels, boxCount};
+        if (boxMajor) {
+            output = SyntheticOutput.transpose(output, channels, boxCount);
+            shape = new int[]{1, boxCount, channels};
+        }
+        decoder = YoloDecoder.create(false, classes, shape);
+    }
+
+    @Benchmark
+    public Detections decodeAll() {
+        return decoder.decode(output, 0, null, CONF_THRESHOLD);
+    }
+
+    @Benchmark
+    public Detections decodeOneClass() {
+        return decoder.decode(output, 0, ONE_CLASS, CONF_THRESHOLD);
+    }
+}
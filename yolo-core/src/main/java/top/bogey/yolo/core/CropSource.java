@@ -0,0 +1,41 @@
+package top.bogey.yolo.core;
+
+// 截取像素来源中的一块区域
+public class CropSource implements PixelSource {
+    private final PixelSource source;
+    private final int left;
+    private final int top;
+    private final int width;
+    private final int height;
+
+    public CropSource(PixelSource source, int left, int top, int width, int height) {
+        this.source = source;
+        this.left = left;
+        this.top = top;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void readRow(int y, int x, int width, int[] row) {
+        source.readRow(top + y, left + x, width, row);
+    }
+}
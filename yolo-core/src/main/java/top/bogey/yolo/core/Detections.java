@@ -0,0 +1,92 @@
+package top.bogey.yolo.core;
+
+import java.util.Arrays;
+
+// 以结构数组形式保存检测框，避免解析过程中为每个候选框创建对象
+public class Detections {
+    private float[] boxes = new float[64 * 4];
+    private int[] classIds = new int[64];
+    private float[] scores = new float[64];
+    private int[] trackIds = new int[64];
+    private int size;
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(float left, float top, float right, float bottom, int classId, float score) {
+        if (size == scores.length) grow();
+        int index = size * 4;
+        boxes[index] = left;
+        boxes[index + 1] = top;
+        boxes[index + 2] = right;
+        boxes[index + 3] = bottom;
+        classIds[size] = classId;
+        scores[size] = score;
+        trackIds[size] = -1;
+        size++;
+    }
+
+    // 复制另一组结果中的一个框并平移
+    public void add(Detections other, int index, float offsetX, float offsetY) {
+        add(other.getLeft(index) + offsetX, other.getTop(index) + offsetY, other.getRight(index) + offsetX, other.getBottom(index) + offsetY, other.getClassId(index), other.getScore(index));
+        trackIds[size - 1] = other.getTrackId(index);
+    }
+
+    private void grow() {
+        int capacity = scores.length * 2;
+        boxes = Arrays.copyOf(boxes, capacity * 4);
+        classIds = Arrays.copyOf(classIds, capacity);
+        scores = Arrays.copyOf(scores, capacity);
+        trackIds = Arrays.copyOf(trackIds, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public float[] getBoxes() {
+        return boxes;
+    }
+
+    public int[] getClassIds() {
+        return classIds;
+    }
+
+    public float[] getScores() {
+        return scores;
+    }
+
+    public float getLeft(int index) {
+        return boxes[index * 4];
+    }
+
+    public float getTop(int index) {
+        return boxes[index * 4 + 1];
+    }
+
+    public float getRight(int index) {
+        return boxes[index * 4 + 2];
+    }
+
+    public float getBottom(int index) {
+        return boxes[index * 4 + 3];
+    }
+
+    public int getClassId(int index) {
+        return classIds[index];
+    }
+
+    public float getScore(int index) {
+        return scores[index];
+    }
+
+    // 未跟踪时为 -1
+    public int getTrackId(int index) {
+        return trackIds[index];
+    }
+
+    public void setTrackId(int index, int trackId) {
+        trackIds[index] = trackId;
+    }
+}
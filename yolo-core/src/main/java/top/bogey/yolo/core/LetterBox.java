@@ -0,0 +1,15 @@
+package top.bogey.yolo.core;
+
+public record LetterBox(float scale, int offsetX, int offsetY, int width, int height) {
+
+    public static LetterBox create(int width, int height, int targetWidth, int targetHeight) {
+        float scale = Math.min(targetWidth * 1f / width, targetHeight * 1f / height);
+
+        int newWidth = (int) (width * scale);
+        int newHeight = (int) (height * scale);
+        float offsetX = (targetWidth - newWidth) / 2f;
+        float offsetY = (targetHeight - newHeight) / 2f;
+
+        return new LetterBox(scale, (int) offsetX, (int) offsetY, newWidth, newHeight);
+    }
+}
@@ -0,0 +1,59 @@
+package top.bogey.yolo.core;
+
+// 一批图片的模型输入，FLOAT32 保存为 float，其余类型保存原始字节，每份输入配一个预处理器
+public class ModelInput {
+    private final int imageSize;
+    private final int length;
+    private final TensorType type;
+    private final float scale;
+    private final int zeroPoint;
+    private final StripeExecutor stripeExecutor;
+
+    private final Preprocessor preprocessor;
+    private final float[] floats;
+    private final byte[] bytes;
+
+    // length 为输入张量的元素数，stripeExecutor 为空时不并行预处理
+    public ModelInput(int imageSize, int length, TensorType type, float scale, int zeroPoint, StripeExecutor stripeExecutor) {
+        this.imageSize = imageSize;
+        this.length = Math.max(length, imageSize * imageSize * 3);
+        this.type = type;
+        this.scale = scale;
+        this.zeroPoint = zeroPoint;
+        this.stripeExecutor = stripeExecutor;
+        preprocessor = new Preprocessor(imageSize, type, scale, zeroPoint, stripeExecutor);
+        if (type == TensorType.FLOAT32) {
+            floats = new float[this.length];
+            bytes = null;
+        } else {
+            floats = null;
+            bytes = new byte[this.length * type.getBytes()];
+        }
+    }
+
+    // 相同格式的另一份输入，用于交替预处理
+    public ModelInput(ModelInput other) {
+        this(other.imageSize, other.length, other.type, other.scale, other.zeroPoint, other.stripeExecutor);
+    }
+
+    // 写入批次中第 index 张图片
+    public LetterBox process(PixelSource source, int index) {
+        int start = index * imageSize * imageSize * 3;
+        if (floats != null) return preprocessor.process(source, floats, start);
+        return preprocessor.process(source, bytes, start);
+    }
+
+    public TensorType getType() {
+        return type;
+    }
+
+    // 非 FLOAT32 时为 null
+    public float[] getFloats() {
+        return floats;
+    }
+
+    // FLOAT32 时为 null
+    public byte[] getBytes() {
+        return bytes;
+    }
+}
@@ -0,0 +1,176 @@
+package top.bogey.yolo.core;
+
+import java.util.Arrays;
+
+// 基于排序索引与抑制位图的非极大值抑制，候选框较多时按网格分桶，只比较可能重叠的框
+public class NonMaxSuppression {
+    public static final float IOU_THRESHOLD = 0.5f;
+    private static final int GRID_MIN_COUNT = 256;
+    private static final int GRID_MAX_SIZE = 32;
+
+    private long[] order = new long[0];
+    private int[] sorted = new int[0];
+    private long[] suppressed = new long[0];
+    private int[] kept = new int[0];
+
+    private int[] cellStart = new int[0];
+    private int[] cellItems = new int[0];
+    private int[] cellRanges = new int[0];
+    private int gridSize;
+
+    public record Options(float iouThreshold, boolean classAgnostic, int maxDetections, boolean grid) {
+        public static final Options DEFAULT = new Options(IOU_THRESHOLD, false, 0, true);
+    }
+
+    public int[] getKept() {
+        return kept;
+    }
+
+    // 返回保留的框数量，保留框的下标按分数从高到低存放在 getKept() 中
+    public int run(Detections detections, Options options) {
+        int count = detections.size();
+        ensureCapacity(count);
+        sortByScore(detections, count);
+        Arrays.fill(suppressed, 0, (count + 63) >>> 6, 0);
+
+        boolean grid = options.grid() && count >= GRID_MIN_COUNT;
+        if (grid) buildGrid(detections, count);
+
+        int limit = options.maxDetections() > 0 ? options.maxDetections() : count;
+        int keptCount = 0;
+        for (int rank = 0; rank < count && keptCount < limit; rank++) {
+            if (isSuppressed(rank)) continue;
+            int current = sorted[rank];
+            kept[keptCount++] = current;
+
+            if (grid) {
+                int rangeIndex = rank * 4;
+                for (int row = cellRanges[rangeIndex + 1]; row <= cellRanges[rangeIndex + 3]; row++) {
+                    for (int column = cellRanges[rangeIndex]; column <= cellRanges[rangeIndex + 2]; column++) {
+                        int cell = row * gridSize + column;
+                        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                            int other = cellItems[i];
+                            if (other > rank) suppress(detections, options, current, other);
+                        }
+                    }
+                }
+            } else {
+                for (int other = rank + 1; other < count; other++) {
+                    suppress(detections, options, current, other);
+                }
+            }
+        }
+        return keptCount;
+    }
+
+    private void suppress(Detections detections, Options options, int current, int otherRank) {
+        if (isSuppressed(otherRank)) return;
+        int other = sorted[otherRank];
+        if (!options.classAgnostic() && detections.getClassId(current) != detections.getClassId(other)) return;
+        if (intersectionOverUnion(detections.getBoxes(), current, other) > options.iouThreshold()) {
+            suppressed[otherRank >>> 6] |= 1L << otherRank;
+        }
+    }
+
+    private boolean isSuppressed(int rank) {
+        return (suppressed[rank >>> 6] & (1L << rank)) != 0;
+    }
+
+    // 分数降序，分数相同时保持原有顺序
+    private void sortByScore(Detections detections, int count) {
+        float[] scores = detections.getScores();
+        for (int i = 0; i < count; i++) {
+            int bits = Float.floatToIntBits(scores[i]);
+            bits ^= (bits >> 31) & 0x7FFFFFFF;
+            order[i] = ((long) ~bits << 32) | i;
+        }
+        Arrays.sort(order, 0, count);
+        for (int i = 0; i < count; i++) {
+            sorted[i] = (int) order[i];
+        }
+    }
+
+    private void buildGrid(Detections detections, int count) {
+        float[] boxes = detections.getBoxes();
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            int index = i * 4;
+            minX = Math.min(minX, boxes[index]);
+            minY = Math.min(minY, boxes[index + 1]);
+            maxX = Math.max(maxX, boxes[index + 2]);
+            maxY = Math.max(maxY, boxes[index + 3]);
+        }
+
+        gridSize = Math.max(1, Math.min(GRID_MAX_SIZE, (int) Math.sqrt(count / 4f)));
+        int cellCount = gridSize * gridSize;
+        if (cellStart.length < cellCount + 1) cellStart = new int[cellCount + 1];
+        Arrays.fill(cellStart, 0, cellCount + 1, 0);
+
+        float cellWidth = Math.max((maxX - minX) / gridSize, Float.MIN_NORMAL);
+        float cellHeight = Math.max((maxY - minY) / gridSize, Float.MIN_NORMAL);
+        int total = 0;
+        for (int rank = 0; rank < count; rank++) {
+            int index = sorted[rank] * 4;
+            int rangeIndex = rank * 4;
+            cellRanges[rangeIndex] = cell(boxes[index], minX, cellWidth);
+            cellRanges[rangeIndex + 1] = cell(boxes[index + 1], minY, cellHeight);
+            cellRanges[rangeIndex + 2] = cell(boxes[index + 2], minX, cellWidth);
+            cellRanges[rangeIndex + 3] = cell(boxes[index + 3], minY, cellHeight);
+            for (int row = cellRanges[rangeIndex + 1]; row <= cellRanges[rangeIndex + 3]; row++) {
+                for (int column = cellRanges[rangeIndex]; column <= cellRanges[rangeIndex + 2]; column++) {
+                    cellStart[row * gridSize + column + 1]++;
+                    total++;
+                }
+            }
+        }
+
+        for (int i = 0; i < cellCount; i++) {
+            cellStart[i + 1] += cellStart[i];
+        }
+        if (cellItems.length < total) cellItems = new int[total];
+
+        // 按排名顺序写入，每个格子内的候选框保持分数降序
+        int[] cursor = Arrays.copyOf(cellStart, cellCount);
+        for (int rank = 0; rank < count; rank++) {
+            int rangeIndex = rank * 4;
+            for (int row = cellRanges[rangeIndex + 1]; row <= cellRanges[rangeIndex + 3]; row++) {
+                for (int column = cellRanges[rangeIndex]; column <= cellRanges[rangeIndex + 2]; column++) {
+                    cellItems[cursor[row * gridSize + column]++] = rank;
+                }
+            }
+        }
+    }
+
+    private int cell(float value, float min, float size) {
+        int cell = (int) ((value - min) / size);
+        return Math.max(0, Math.min(gridSize - 1, cell));
+    }
+
+    private void ensureCapacity(int count) {
+        if (order.length >= count) return;
+        order = new long[count];
+        sorted = new int[count];
+        suppressed = new long[(count + 63) >>> 6];
+        kept = new int[count];
+        cellRanges = new int[count * 4];
+    }
+
+    public static float intersectionOverUnion(float[] boxes, int a, int b) {
+        int aIndex = a * 4;
+        int bIndex = b * 4;
+        float left = Math.max(boxes[aIndex], boxes[bIndex]);
+        float top = Math.max(boxes[aIndex + 1], boxes[bIndex + 1]);
+        float right = Math.min(boxes[aIndex + 2], boxes[bIndex + 2]);
+        float bottom = Math.min(boxes[aIndex + 3], boxes[bIndex + 3]);
+
+        float width = Math.max(right - left, 0);
+        float height = Math.max(bottom - top, 0);
+        float intersectionArea = width * height;
+
+        float aArea = (boxes[aIndex + 2] - boxes[aIndex]) * (boxes[aIndex + 3] - boxes[aIndex + 1]);
+        float bArea = (boxes[bIndex + 2] - boxes[bIndex]) * (boxes[bIndex + 3] - boxes[bIndex + 1]);
+        float unionArea = aArea + bArea - intersectionArea;
+        if (unionArea > 0) return intersectionArea / unionArea;
+        return 0;
+    }
+}
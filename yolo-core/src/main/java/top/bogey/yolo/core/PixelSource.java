@@ -0,0 +1,11 @@
+package top.bogey.yolo.core;
+
+// 预处理的像素来源，按行读取 ARGB 像素，大图分条预处理时会被多个线程同时读取
+public interface PixelSource {
+    int getWidth();
+
+    int getHeight();
+
+    // 读取第 y 行从 x 开始的 width 个像素
+    void readRow(int y, int x, int width, int[] row);
+}
@@ -0,0 +1,243 @@
+package top.bogey.yolo.core;
+
+import java.util.Arrays;
+
+// 一次遍历完成缩放、填充、归一化，直接写入模型输入数组，大图按行分条并行处理
+public class Preprocessor {
+    private static final int PADDING = 114;
+    private static final float NORMALIZE = 1 / 255f;
+
+    private final int imageSize;
+    private final TensorType type;
+    // 0~255 的像素值对应的输入值，FLOAT16 每个值两个字节
+    private final float[] floatValues = new float[256];
+    private final byte[] byteValues;
+
+    private final StripeExecutor stripeExecutor;
+
+    private float[] floatInput;
+    private byte[] byteInput;
+
+    // 每条各自缓存相邻的两行源像素
+    private Rows[] rows = {new Rows()};
+
+    private int mappedWidth = -1;
+    private int mappedNewWidth = -1;
+    private int[] leftIndex = new int[0];
+    private int[] rightIndex = new int[0];
+    private float[] rightWeight = new float[0];
+
+    public Preprocessor(int imageSize) {
+        this(imageSize, TensorType.FLOAT32, 0, 0, null);
+    }
+
+    // 量化输入按 scale 与 zeroPoint 写入像素值，scale 为 0 时直接写入原始 RGB；stripeExecutor 为空时不并行
+    public Preprocessor(int imageSize, TensorType type, float scale, int zeroPoint, StripeExecutor stripeExecutor) {
+        this.imageSize = imageSize;
+        this.type = type;
+        this.stripeExecutor = stripeExecutor;
+        byteValues = new byte[256 * type.getBytes()];
+        for (int value = 0; value < 256; value++) {
+            floatValues[value] = value * NORMALIZE;
+            switch (type) {
+                case FLOAT16 -> {
+                    short half = TensorType.toHalf(value * NORMALIZE);
+                    byteValues[value * 2] = (byte) half;
+                    byteValues[value * 2 + 1] = (byte) (half >> 8);
+                }
+                case UINT8 -> byteValues[value] = (byte) quantize(value, scale, zeroPoint, 0, 255);
+                case INT8 -> byteValues[value] = (byte) (scale > 0 ? quantize(value, scale, zeroPoint, -128, 127) : value - 128);
+            }
+        }
+    }
+
+    private static int quantize(int value, float scale, int zeroPoint, int min, int max) {
+        if (scale <= 0) return value;
+        return Math.max(min, Math.min(max, Math.round(value * NORMALIZE / scale) + zeroPoint));
+    }
+
+    public TensorType getType() {
+        return type;
+    }
+
+    // 写入 input 中从 start 开始的一张图片的数据
+    public LetterBox process(PixelSource source, float[] input, int start) {
+        if (type != TensorType.FLOAT32) throw new IllegalStateException("input type is " + type);
+        floatInput = input;
+        try {
+            return process(source, start);
+        } finally {
+            floatInput = null;
+        }
+    }
+
+    // 量化与半精度输入写入原始字节，start 按元素计
+    public LetterBox process(PixelSource source, byte[] input, int start) {
+        if (type == TensorType.FLOAT32) throw new IllegalStateException("input type is " + type);
+        byteInput = input;
+        try {
+            return process(source, start);
+        } finally {
+            byteInput = null;
+        }
+    }
+
+    private LetterBox process(PixelSource source, int start) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        LetterBox letterBox = LetterBox.create(width, height, imageSize, imageSize);
+        int newHeight = letterBox.height();
+        int offsetY = letterBox.offsetY();
+
+        prepareColumns(width, letterBox.width());
+
+        int rowLength = imageSize * 3;
+        fill(start, start + offsetY * rowLength);
+        fill(start + (offsetY + newHeight) * rowLength, start + imageSize * rowLength);
+
+        int stripes = stripeExecutor == null ? 1 : stripeExecutor.getStripes((long) width * height, newHeight);
+        if (rows.length < stripes) {
+            Rows[] expanded = Arrays.copyOf(rows, stripes);
+            for (int i = rows.length; i < stripes; i++) {
+                expanded[i] = new Rows();
+            }
+            rows = expanded;
+        }
+
+        // 各条写入输入数组中互不重叠的行
+        if (stripes == 1) processRows(rows[0], source, letterBox, start, 0, newHeight);
+        else stripeExecutor.run(newHeight, stripes, (index, from, to) -> processRows(rows[index], source, letterBox, start, from, to));
+        return letterBox;
+    }
+
+    private void processRows(Rows rows, PixelSource source, LetterBox letterBox, int start, int from, int to) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int newWidth = letterBox.width();
+        int newHeight = letterBox.height();
+        int offsetX = letterBox.offsetX();
+        int offsetY = letterBox.offsetY();
+        int rowLength = imageSize * 3;
+        rows.prepare(width);
+
+        // 与 Bitmap.createScaledBitmap 一致，按像素中心做双线性采样
+        float ratioY = height * 1f / newHeight;
+        for (int y = from; y < to; y++) {
+            float sourceY = Math.max((y + 0.5f) * ratioY - 0.5f, 0);
+            int top = Math.min((int) sourceY, height - 1);
+            int bottom = Math.min(top + 1, height - 1);
+            float bottomWeight = sourceY - top;
+            rows.load(source, top, bottom);
+            int[] topRow = rows.topRow;
+            int[] bottomRow = rows.bottomRow;
+
+            int index = start + (offsetY + y) * rowLength;
+            fill(index, index + offsetX * 3);
+            index += offsetX * 3;
+
+            for (int x = 0; x < newWidth; x++) {
+                int left = leftIndex[x];
+                int right = rightIndex[x];
+                float weight = rightWeight[x];
+
+                int topLeft = topRow[left];
+                int topRight = topRow[right];
+                int bottomLeft = bottomRow[left];
+                int bottomRight = bottomRow[right];
+
+                put(index++, blend(topLeft >> 16, topRight >> 16, bottomLeft >> 16, bottomRight >> 16, weight, bottomWeight));
+                put(index++, blend(topLeft >> 8, topRight >> 8, bottomLeft >> 8, bottomRight >> 8, weight, bottomWeight));
+                put(index++, blend(topLeft, topRight, bottomLeft, bottomRight, weight, bottomWeight));
+            }
+
+            fill(index, start + (offsetY + y + 1) * rowLength);
+        }
+    }
+
+    private static int blend(int topLeft, int topRight, int bottomLeft, int bottomRight, float rightWeight, float bottomWeight) {
+        float top = (topLeft & 0xFF) + ((topRight & 0xFF) - (topLeft & 0xFF)) * rightWeight;
+        float bottom = (bottomLeft & 0xFF) + ((bottomRight & 0xFF) - (bottomLeft & 0xFF)) * rightWeight;
+        return Math.round(top + (bottom - top) * bottomWeight);
+    }
+
+    private void put(int index, int value) {
+        if (floatInput != null) {
+            floatInput[index] = floatValues[value];
+        } else if (type == TensorType.FLOAT16) {
+            byteInput[index * 2] = byteValues[value * 2];
+            byteInput[index * 2 + 1] = byteValues[value * 2 + 1];
+        } else {
+            byteInput[index] = byteValues[value];
+        }
+    }
+
+    private void fill(int from, int to) {
+        if (floatInput != null) {
+            Arrays.fill(floatInput, from, to, floatValues[PADDING]);
+        } else if (type == TensorType.FLOAT16) {
+            for (int i = from; i < to; i++) {
+                put(i, PADDING);
+            }
+        } else {
+            Arrays.fill(byteInput, from, to, byteValues[PADDING]);
+        }
+    }
+
+    private void prepareColumns(int width, int newWidth) {
+        if (mappedWidth == width && mappedNewWidth == newWidth) return;
+        if (leftIndex.length < newWidth) {
+            leftIndex = new int[newWidth];
+            rightIndex = new int[newWidth];
+            rightWeight = new float[newWidth];
+        }
+
+        float ratioX = width * 1f / newWidth;
+        for (int x = 0; x < newWidth; x++) {
+            float sourceX = Math.max((x + 0.5f) * ratioX - 0.5f, 0);
+            int left = Math.min((int) sourceX, width - 1);
+            leftIndex[x] = left;
+            rightIndex[x] = Math.min(left + 1, width - 1);
+            rightWeight[x] = sourceX - left;
+        }
+        mappedWidth = width;
+        mappedNewWidth = newWidth;
+    }
+
+    private static class Rows {
+        private int[] topRow = new int[0];
+        private int[] bottomRow = new int[0];
+        private int topRowIndex = -1;
+        private int bottomRowIndex = -1;
+
+        private void prepare(int width) {
+            if (topRow.length != width) {
+                topRow = new int[width];
+                bottomRow = new int[width];
+            }
+            topRowIndex = -1;
+            bottomRowIndex = -1;
+        }
+
+        private void load(PixelSource source, int top, int bottom) {
+            if (top == topRowIndex && bottom == bottomRowIndex) return;
+            int width = topRow.length;
+
+            if (top == bottomRowIndex) {
+                int[] tmp = topRow;
+                topRow = bottomRow;
+                bottomRow = tmp;
+            } else {
+                source.readRow(top, 0, width, topRow);
+            }
+
+            if (bottom == top) {
+                System.arraycopy(topRow, 0, bottomRow, 0, width);
+            } else {
+                source.readRow(bottom, 0, width, bottomRow);
+            }
+
+            topRowIndex = top;
+            bottomRowIndex = bottom;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package top.bogey.yolo.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+// 将连续的行分条并行处理，调用线程处理第一条，其余交给线程池，像素数低于阈值时只用调用线程
+public class StripeExecutor {
+    public static final int DEFAULT_MIN_PIXELS = 1920 * 1080;
+    // 每条至少的行数，过细时调度开销超过收益
+    private static final int MIN_ROWS = 32;
+
+    private final Executor executor;
+    private final int parallelism;
+    private volatile int minPixels = DEFAULT_MIN_PIXELS;
+
+    // parallelism 包含调用线程，executor 至少需要 parallelism - 1 个线程
+    public StripeExecutor(Executor executor, int parallelism) {
+        this.executor = executor;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    // 源图像素数不小于 minPixels 时并行，小于等于 0 时使用默认值
+    public void setMinPixels(int minPixels) {
+        this.minPixels = minPixels > 0 ? minPixels : DEFAULT_MIN_PIXELS;
+    }
+
+    public int getStripes(long pixels, int rows) {
+        if (pixels < minPixels) return 1;
+        return Math.max(1, Math.min(parallelism, rows / MIN_ROWS));
+    }
+
+    // 将 [0, rows) 均分为 stripes 条，全部完成后返回
+    public void run(int rows, int stripes, Stripe stripe) {
+        if (stripes <= 1) {
+            stripe.run(0, 0, rows);
+            return;
+        }
+
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[stripes - 1];
+        for (int i = 1; i < stripes; i++) {
+            int index = i;
+            futures[i - 1] = CompletableFuture.runAsync(() -> stripe.run(index, rows * index / stripes, rows * (index + 1) / stripes), executor);
+        }
+
+        // 等待全部条完成后再返回或抛出，避免仍有线程在写入
+        RuntimeException failure = null;
+        try {
+            stripe.run(0, 0, rows / stripes);
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+        for (CompletableFuture<?> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                if (failure == null) failure = e.getCause() instanceof RuntimeException runtimeException ? runtimeException : e;
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    public interface Stripe {
+        void run(int index, int from, int to);
+    }
+}
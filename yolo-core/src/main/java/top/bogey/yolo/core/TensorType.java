@@ -0,0 +1,88 @@
+package top.bogey.yolo.core;
+
+// 支持的张量数据类型，量化类型以原始字节读写
+public enum TensorType {
+    FLOAT32(4),
+    FLOAT16(2),
+    UINT8(1),
+    INT8(1);
+
+    private final int bytes;
+
+    TensorType(int bytes) {
+        this.bytes = bytes;
+    }
+
+    // 每个元素的字节数
+    public int getBytes() {
+        return bytes;
+    }
+
+    // 按 tflite 中的类型编号转换，不支持的类型返回 null
+    public static TensorType of(int type) {
+        return switch (type) {
+            case TfliteReader.FLOAT32 -> FLOAT32;
+            case TfliteReader.FLOAT16 -> FLOAT16;
+            case TfliteReader.UINT8 -> UINT8;
+            case TfliteReader.INT8 -> INT8;
+            default -> null;
+        };
+    }
+
+    // 将原始字节还原为 float，FLOAT16 按小端读取，量化类型按 scale 与 zeroPoint 反量化
+    public void toFloat(byte[] data, float scale, int zeroPoint, float[] output) {
+        int length = data.length / bytes;
+        switch (this) {
+            case FLOAT16 -> {
+                for (int i = 0; i < length; i++) {
+                    output[i] = fromHalf((data[i * 2] & 0xFF) | (data[i * 2 + 1] & 0xFF) << 8);
+                }
+            }
+            case UINT8 -> {
+                for (int i = 0; i < length; i++) {
+                    output[i] = ((data[i] & 0xFF) - zeroPoint) * scale;
+                }
+            }
+            case INT8 -> {
+                for (int i = 0; i < length; i++) {
+                    output[i] = (data[i] - zeroPoint) * scale;
+                }
+            }
+            default -> throw new IllegalStateException("not a raw type: " + this);
+        }
+    }
+
+    // 舍入到最近的半精度值，超出范围时为无穷大
+    public static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = bits >>> 16 & 0x8000;
+        int exponent = (bits >>> 23 & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+        if (exponent >= 31) return (short) (sign | 0x7C00);
+        if (exponent <= 0) {
+            if (exponent < -10) return (short) sign;
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            if ((mantissa >> (shift - 1) & 1) != 0) half++;
+            return (short) (sign | half);
+        }
+        int half = sign | exponent << 10 | mantissa >> 13;
+        // 进位可直接进入指数位
+        if ((mantissa & 0x1000) != 0) half++;
+        return (short) half;
+    }
+
+    public static float fromHalf(int half) {
+        int sign = (half & 0x8000) << 16;
+        int exponent = half >>> 10 & 0x1F;
+        int mantissa = half & 0x3FF;
+        if (exponent == 0x1F) return Float.intBitsToFloat(sign | 0x7F800000 | mantissa << 13);
+        if (exponent == 0) {
+            if (mantissa == 0) return Float.intBitsToFloat(sign);
+            float value = mantissa / 16777216f;
+            return sign == 0 ? value : -value;
+        }
+        return Float.intBitsToFloat(sign | (exponent + 112) << 23 | mantissa << 13);
+    }
+}
@@ -0,0 +1,121 @@
+package top.bogey.yolo.core;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// 直接读取 tflite 文件的 flatbuffer 结构，获取主子图输入输出张量的形状与类型，只映射文件不复制
+public class TfliteReader {
+    public static final int FLOAT32 = 0;
+    public static final int FLOAT16 = 1;
+    public static final int UINT8 = 3;
+    public static final int INT8 = 9;
+
+    // 非量化张量的 scale 为 0
+    public record Tensor(int[] shape, int type, float scale, int zeroPoint) {
+    }
+
+    public record Model(List<Tensor> inputs, List<Tensor> outputs) {
+    }
+
+    // 无法解析时返回 null
+    public static Model read(String path) {
+        try (FileInputStream inputStream = new FileInputStream(path); FileChannel channel = inputStream.getChannel()) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        } catch (IOException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    public static Model read(ByteBuffer buffer) {
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.limit() < 8) return null;
+        if (buffer.get(4) != 'T' || buffer.get(5) != 'F' || buffer.get(6) != 'L' || buffer.get(7) != '3') return null;
+
+        int model = buffer.getInt(0);
+        // Model.subgraphs
+        int subgraphs = field(buffer, model, 2);
+        if (subgraphs == 0 || vectorLength(buffer, subgraphs) == 0) return null;
+        int subgraph = vectorTable(buffer, subgraphs, 0);
+
+        // SubGraph.tensors / inputs / outputs
+        int tensors = field(buffer, subgraph, 0);
+        if (tensors == 0) return null;
+        List<Tensor> inputs = readTensors(buffer, tensors, field(buffer, subgraph, 1));
+        List<Tensor> outputs = readTensors(buffer, tensors, field(buffer, subgraph, 2));
+        if (inputs.isEmpty() || outputs.isEmpty()) return null;
+        return new Model(inputs, outputs);
+    }
+
+    private static List<Tensor> readTensors(ByteBuffer buffer, int tensors, int indexes) {
+        List<Tensor> list = new ArrayList<>();
+        if (indexes == 0) return list;
+        int count = vectorLength(buffer, indexes);
+        int tensorCount = vectorLength(buffer, tensors);
+        for (int i = 0; i < count; i++) {
+            int index = buffer.getInt(vectorStart(buffer, indexes) + i * 4);
+            if (index < 0 || index >= tensorCount) continue;
+            int tensor = vectorTable(buffer, tensors, index);
+
+            // Tensor.shape / type
+            int shapeField = field(buffer, tensor, 0);
+            int[] shape = new int[shapeField == 0 ? 0 : vectorLength(buffer, shapeField)];
+            for (int j = 0; j < shape.length; j++) {
+                shape[j] = buffer.getInt(vectorStart(buffer, shapeField) + j * 4);
+            }
+            int typeField = field(buffer, tensor, 1);
+            int type = typeField == 0 ? FLOAT32 : buffer.get(typeField);
+
+            // Tensor.quantization -> QuantizationParameters.scale / zero_point，按张量量化时只取第一个
+            float scale = 0;
+            int zeroPoint = 0;
+            int quantization = field(buffer, tensor, 4);
+            if (quantization != 0) {
+                int table = table(buffer, quantization);
+                int scaleField = field(buffer, table, 2);
+                if (scaleField != 0 && vectorLength(buffer, scaleField) > 0) scale = buffer.getFloat(vectorStart(buffer, scaleField));
+                int zeroPointField = field(buffer, table, 3);
+                if (zeroPointField != 0 && vectorLength(buffer, zeroPointField) > 0) zeroPoint = (int) buffer.getLong(vectorStart(buffer, zeroPointField));
+            }
+            list.add(new Tensor(shape, type, scale, zeroPoint));
+        }
+        return list;
+    }
+
+    // 返回字段所在位置，字段不存在时返回 0
+    private static int field(ByteBuffer buffer, int table, int index) {
+        int vtable = table - buffer.getInt(table);
+        int vtableSize = buffer.getShort(vtable) & 0xFFFF;
+        int entry = 4 + index * 2;
+        if (entry >= vtableSize) return 0;
+        int offset = buffer.getShort(vtable + entry) & 0xFFFF;
+        return offset == 0 ? 0 : table + offset;
+    }
+
+    private static int table(ByteBuffer buffer, int field) {
+        return field + buffer.getInt(field);
+    }
+
+    private static int vector(ByteBuffer buffer, int field) {
+        return field + buffer.getInt(field);
+    }
+
+    private static int vectorLength(ByteBuffer buffer, int field) {
+        return buffer.getInt(vector(buffer, field));
+    }
+
+    private static int vectorStart(ByteBuffer buffer, int field) {
+        return vector(buffer, field) + 4;
+    }
+
+    private static int vectorTable(ByteBuffer buffer, int field, int index) {
+        int element = vectorStart(buffer, field) + index * 4;
+        return element + buffer.getInt(element);
+    }
+}
@@ -0,0 +1,47 @@
+package top.bogey.yolo.core;
+
+// 将区域切分为相互重叠的图块，块数超过上限时放大图块
+public class TileGrid {
+
+    // 返回依次为 left, top, right, bottom 的图块坐标，相对区域左上角
+    public static int[] split(int width, int height, int tileSize, float overlap, int maxTiles) {
+        overlap = Math.max(0, Math.min(overlap, 0.9f));
+        maxTiles = Math.max(1, maxTiles);
+        int size = Math.max(1, tileSize);
+        int columns = count(width, size, overlap);
+        int rows = count(height, size, overlap);
+        while (columns * rows > maxTiles && size < Math.max(width, height)) {
+            size = Math.min(Math.max(width, height), Math.max(size + 1, (int) (size * 1.25f)));
+            columns = count(width, size, overlap);
+            rows = count(height, size, overlap);
+        }
+
+        int tileWidth = Math.min(size, width);
+        int tileHeight = Math.min(size, height);
+        int[] tiles = new int[columns * rows * 4];
+        int index = 0;
+        for (int row = 0; row < rows; row++) {
+            int top = position(row, rows, height, tileHeight);
+            for (int column = 0; column < columns; column++) {
+                int left = position(column, columns, width, tileWidth);
+                tiles[index++] = left;
+                tiles[index++] = top;
+                tiles[index++] = left + tileWidth;
+                tiles[index++] = top + tileHeight;
+            }
+        }
+        return tiles;
+    }
+
+    private static int count(int length, int size, float overlap) {
+        if (length <= size) return 1;
+        float stride = Math.max(1, size * (1 - overlap));
+        return (int) Math.ceil((length - size) / stride) + 1;
+    }
+
+    // 首尾图块贴齐边缘，中间均匀分布
+    private static int position(int index, int count, int length, int size) {
+        if (count == 1) return 0;
+        return (int) ((long) index * (length - size) / (count - 1));
+    }
+}
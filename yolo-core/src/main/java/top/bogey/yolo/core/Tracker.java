@@ -0,0 +1,185 @@
+package top.bogey.yolo.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// 单路画面的多目标跟踪，参照 ByteTrack：高分框优先按 IoU 关联，剩余跟踪再与低分框关联，位置用匀速卡尔曼滤波预测
+public class Tracker {
+    private static final float HIGH_IOU = 0.2f;
+    private static final float LOW_IOU = 0.5f;
+    private static final int MAX_LOST = 30;
+    // 噪声按框高取比例
+    private static final float POSITION_WEIGHT = 1 / 20f;
+    private static final float VELOCITY_WEIGHT = 1 / 160f;
+
+    private final List<Track> tracks = new ArrayList<>();
+    private final Detections results = new Detections();
+    private int nextId = 1;
+
+    // 用新的识别结果更新跟踪，highScore 以上的框可以新建跟踪，返回带跟踪编号的结果
+    public Detections update(Detections detections, float highScore) {
+        for (Track track : tracks) {
+            track.predict();
+        }
+
+        int size = detections.size();
+        int[] matched = new int[size];
+        Arrays.fill(matched, -1);
+        boolean[] updated = new boolean[tracks.size()];
+
+        List<Track> active = new ArrayList<>();
+        for (Track track : tracks) {
+            if (track.lost == 0) active.add(track);
+        }
+
+        associate(tracks, detections, true, highScore, HIGH_IOU, matched, updated);
+        associate(active, detections, false, highScore, LOW_IOU, matched, updated);
+
+        results.clear();
+        for (int i = 0; i < size; i++) {
+            Track track;
+            if (matched[i] >= 0) {
+                track = tracks.get(matched[i]);
+                track.update(detections, i);
+            } else {
+                if (detections.getScore(i) < highScore) continue;
+                track = new Track(nextId++, detections, i);
+                tracks.add(track);
+            }
+            results.add(detections, i, 0, 0);
+            results.setTrackId(results.size() - 1, track.id);
+        }
+
+        for (int i = 0; i < updated.length; i++) {
+            Track track = tracks.get(i);
+            if (!updated[i]) track.lost++;
+        }
+        tracks.removeIf(track -> track.lost > MAX_LOST);
+        return results;
+    }
+
+    // 不识别，按运动预测给出上一帧仍在跟踪的物体
+    public Detections predict() {
+        results.clear();
+        for (Track track : tracks) {
+            track.predict();
+            if (track.lost > 0) continue;
+            float centerX = track.state[0], centerY = track.state[1], width = track.state[2], height = track.state[3];
+            results.add(centerX - width / 2, centerY - height / 2, centerX + width / 2, centerY + height / 2, track.classId, track.score);
+            results.setTrackId(results.size() - 1, track.id);
+        }
+        return results;
+    }
+
+    public boolean isEmpty() {
+        return tracks.isEmpty();
+    }
+
+    // 按 IoU 从高到低贪心关联同类别的跟踪与识别框
+    private void associate(List<Track> candidates, Detections detections, boolean high, float highScore, float minIou, int[] matched, boolean[] updated) {
+        List<long[]> pairs = new ArrayList<>();
+        for (Track track : candidates) {
+            int trackIndex = tracks.indexOf(track);
+            if (updated[trackIndex]) continue;
+            for (int i = 0; i < detections.size(); i++) {
+                if (matched[i] >= 0 || (detections.getScore(i) >= highScore) != high) continue;
+                if (detections.getClassId(i) != track.classId) continue;
+                float iou = track.intersectionOverUnion(detections, i);
+                if (iou < minIou) continue;
+                pairs.add(new long[]{Float.floatToIntBits(iou), trackIndex, i});
+            }
+        }
+        pairs.sort((a, b) -> Long.compare(b[0], a[0]));
+
+        for (long[] pair : pairs) {
+            int trackIndex = (int) pair[1];
+            int index = (int) pair[2];
+            if (updated[trackIndex] || matched[index] >= 0) continue;
+            updated[trackIndex] = true;
+            matched[index] = trackIndex;
+        }
+    }
+
+    private static class Track {
+        private final int id;
+        private final int classId;
+        private float score;
+        private int lost;
+
+        // 依次为中心 x、中心 y、宽、高，每个分量独立滤波
+        private final float[] state = new float[4];
+        private final float[] velocity = new float[4];
+        private final float[] positionVariance = new float[4];
+        private final float[] covariance = new float[4];
+        private final float[] velocityVariance = new float[4];
+
+        private Track(int id, Detections detections, int index) {
+            this.id = id;
+            classId = detections.getClassId(index);
+            score = detections.getScore(index);
+            measure(detections, index, state);
+            float height = state[3];
+            for (int i = 0; i < 4; i++) {
+                float position = 2 * POSITION_WEIGHT * height;
+                float speed = 10 * VELOCITY_WEIGHT * height;
+                positionVariance[i] = position * position;
+                velocityVariance[i] = speed * speed;
+            }
+        }
+
+        private void predict() {
+            float height = Math.max(state[3], 1);
+            float positionNoise = POSITION_WEIGHT * height;
+            float velocityNoise = VELOCITY_WEIGHT * height;
+            for (int i = 0; i < 4; i++) {
+                state[i] += velocity[i];
+                positionVariance[i] += 2 * covariance[i] + velocityVariance[i] + positionNoise * positionNoise;
+                covariance[i] += velocityVariance[i];
+                velocityVariance[i] += velocityNoise * velocityNoise;
+            }
+            state[2] = Math.max(state[2], 1);
+            state[3] = Math.max(state[3], 1);
+        }
+
+        private void update(Detections detections, int index) {
+            float[] measurement = new float[4];
+            measure(detections, index, measurement);
+            float noise = POSITION_WEIGHT * Math.max(state[3], 1);
+            for (int i = 0; i < 4; i++) {
+                float residual = measurement[i] - state[i];
+                float total = positionVariance[i] + noise * noise;
+                float positionGain = positionVariance[i] / total;
+                float velocityGain = covariance[i] / total;
+                state[i] += positionGain * residual;
+                velocity[i] += velocityGain * residual;
+                velocityVariance[i] -= velocityGain * covariance[i];
+                covariance[i] *= 1 - positionGain;
+                positionVariance[i] *= 1 - positionGain;
+            }
+            score = detections.getScore(index);
+            lost = 0;
+        }
+
+        private float intersectionOverUnion(Detections detections, int index) {
+            float width = state[2], height = state[3];
+            float left = state[0] - width / 2, top = state[1] - height / 2;
+            float right = left + width, bottom = top + height;
+            float intersectWidth = Math.min(right, detections.getRight(index)) - Math.max(left, detections.getLeft(index));
+            float intersectHeight = Math.min(bottom, detections.getBottom(index)) - Math.max(top, detections.getTop(index));
+            if (intersectWidth <= 0 || intersectHeight <= 0) return 0;
+            float intersection = intersectWidth * intersectHeight;
+            float other = (detections.getRight(index) - detections.getLeft(index)) * (detections.getBottom(index) - detections.getTop(index));
+            return intersection / (width * height + other - intersection);
+        }
+
+        private static void measure(Detections detections, int index, float[] measurement) {
+            float left = detections.getLeft(index), top = detections.getTop(index);
+            float right = detections.getRight(index), bottom = detections.getBottom(index);
+            measurement[0] = (left + right) / 2;
+            measurement[1] = (top + bottom) / 2;
+            measurement[2] = Math.max(right - left, 1);
+            measurement[3] = Math.max(bottom - top, 1);
+        }
+    }
+}
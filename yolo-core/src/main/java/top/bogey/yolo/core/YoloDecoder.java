@@ -0,0 +1,195 @@
+package top.bogey.yolo.core;
+
+import java.util.Arrays;
+
+// 解析模型输出，加载模型时按输出张量形状选定解析方式，每个模型一个实例，中间数组跨调用复用
+public abstract class YoloDecoder {
+    protected final Detections detections = new Detections();
+    protected final int boxCount;
+    protected final int classesNum;
+    private final int[] allClasses;
+    private final boolean[] selected;
+    private final int[] selectedClasses;
+
+    // 形状取最后两维，与模型版本不符时返回 null
+    public static YoloDecoder create(boolean endToEnd, int classesNum, int[] shape) {
+        if (shape == null || shape.length < 2) return null;
+        int rows = shape[shape.length - 2];
+        int columns = shape[shape.length - 1];
+        if (endToEnd) {
+            if (columns == EndToEndDecoder.CHANNELS) return new EndToEndDecoder(rows, classesNum, 1, EndToEndDecoder.CHANNELS);
+            if (rows == EndToEndDecoder.CHANNELS) return new EndToEndDecoder(columns, classesNum, columns, 1);
+            return null;
+        }
+        int channels = 4 + classesNum;
+        if (rows == channels) return new ChannelMajorDecoder(columns, classesNum);
+        if (columns == channels) return new BoxMajorDecoder(rows, classesNum);
+        return null;
+    }
+
+    protected YoloDecoder(int boxCount, int classesNum) {
+        this.boxCount = boxCount;
+        this.classesNum = classesNum;
+        allClasses = new int[classesNum];
+        for (int i = 0; i < classesNum; i++) {
+            allClasses[i] = i;
+        }
+        selected = new boolean[classesNum];
+        selectedClasses = new int[classesNum];
+    }
+
+    // 单张图片的输出长度
+    public abstract int getOutputLength();
+
+    // classIds 为空时解析全部类别，超出范围的类别忽略
+    public abstract Detections decode(float[] output, int offset, int[] classIds, float confThreshold);
+
+    // 返回按升序排列的类别，长度为 count[0]
+    protected int[] select(int[] classIds, int[] count) {
+        if (classIds == null || classIds.length == 0) {
+            count[0] = classesNum;
+            return allClasses;
+        }
+        Arrays.fill(selected, false);
+        for (int classId : classIds) {
+            if (classId >= 0 && classId < classesNum) selected[classId] = true;
+        }
+        int size = 0;
+        for (int i = 0; i < classesNum; i++) {
+            if (selected[i]) selectedClasses[size++] = i;
+        }
+        count[0] = size;
+        return selectedClasses;
+    }
+
+    // V8/V11 默认导出 [4 + 类别数, 框数]，按类别行顺序扫描，保持内存连续访问
+    private static class ChannelMajorDecoder extends YoloDecoder {
+        private final float[] maxScores;
+        private final int[] maxClasses;
+        private final int[] count = new int[1];
+
+        private ChannelMajorDecoder(int boxCount, int classesNum) {
+            super(boxCount, classesNum);
+            maxScores = new float[boxCount];
+            maxClasses = new int[boxCount];
+        }
+
+        @Override
+        public int getOutputLength() {
+            return (4 + classesNum) * boxCount;
+        }
+
+        @Override
+        public Detections decode(float[] output, int offset, int[] classIds, float confThreshold) {
+            detections.clear();
+            int[] classes = select(classIds, count);
+            int size = count[0];
+            if (size == 0) return detections;
+
+            int first = classes[0];
+            System.arraycopy(output, offset + (4 + first) * boxCount, maxScores, 0, boxCount);
+            Arrays.fill(maxClasses, first);
+            for (int k = 1; k < size; k++) {
+                int j = classes[k];
+                int row = offset + (4 + j) * boxCount;
+                for (int i = 0; i < boxCount; i++) {
+                    float score = output[row + i];
+                    if (score > maxScores[i]) {
+                        maxScores[i] = score;
+                        maxClasses[i] = j;
+                    }
+                }
+            }
+
+            for (int i = 0; i < boxCount; i++) {
+                float score = maxScores[i];
+                if (score < confThreshold) continue;
+
+                float cx = output[offset + i];
+                float cy = output[offset + boxCount + i];
+                float w = output[offset + 2 * boxCount + i];
+                float h = output[offset + 3 * boxCount + i];
+                detections.add(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2, maxClasses[i], score);
+            }
+            return detections;
+        }
+    }
+
+    // 转置导出的 [框数, 4 + 类别数]，逐框扫描
+    private static class BoxMajorDecoder extends YoloDecoder {
+        private final int[] count = new int[1];
+
+        private BoxMajorDecoder(int boxCount, int classesNum) {
+            super(boxCount, classesNum);
+        }
+
+        @Override
+        public int getOutputLength() {
+            return (4 + classesNum) * boxCount;
+        }
+
+        @Override
+        public Detections decode(float[] output, int offset, int[] classIds, float confThreshold) {
+            detections.clear();
+            int[] classes = select(classIds, count);
+            int size = count[0];
+            if (size == 0) return detections;
+
+            int channels = 4 + classesNum;
+            for (int i = 0; i < boxCount; i++) {
+                int index = offset + i * channels;
+                int maxClass = classes[0];
+                float maxScore = output[index + 4 + maxClass];
+                for (int k = 1; k < size; k++) {
+                    float score = output[index + 4 + classes[k]];
+                    if (score > maxScore) {
+                        maxScore = score;
+                        maxClass = classes[k];
+                    }
+                }
+                if (maxScore < confThreshold) continue;
+
+                float cx = output[index], cy = output[index + 1], w = output[index + 2], h = output[index + 3];
+                detections.add(cx - w / 2, cy - h / 2, cx + w / 2, cy + h / 2, maxClass, maxScore);
+            }
+            return detections;
+        }
+    }
+
+    // V10 端到端输出，每框 left, top, right, bottom, score, classId，支持 [框数, 6] 与 [6, 框数]
+    private static class EndToEndDecoder extends YoloDecoder {
+        private static final int CHANNELS = 6;
+        private final int channelStride;
+        private final int boxStride;
+        private final int[] count = new int[1];
+
+        private EndToEndDecoder(int boxCount, int classesNum, int channelStride, int boxStride) {
+            super(boxCount, classesNum);
+            this.channelStride = channelStride;
+            this.boxStride = boxStride;
+        }
+
+        @Override
+        public int getOutputLength() {
+            return CHANNELS * boxCount;
+        }
+
+        @Override
+        public Detections decode(float[] output, int offset, int[] classIds, float confThreshold) {
+            detections.clear();
+            boolean filter = classIds != null && classIds.length > 0;
+            int[] classes = select(classIds, count);
+            int size = count[0];
+            for (int i = 0; i < boxCount; i++) {
+                int index = offset + i * boxStride;
+                float score = output[index + 4 * channelStride];
+                if (score < confThreshold) continue;
+                int classId = (int) output[index + 5 * channelStride];
+                if (classId < 0 || classId >= classesNum) continue;
+                if (filter && Arrays.binarySearch(classes, 0, size, classId) < 0) continue;
+                detections.add(output[index], output[index + channelStride], output[index + 2 * channelStride], output[index + 3 * channelStride], classId, score);
+            }
+            return detections;
+        }
+    }
+}